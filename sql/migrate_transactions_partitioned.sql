@@ -0,0 +1,92 @@
+-- Migration d'une table transactions non partitionnée vers le partitionnement mensuel (PostgreSQL 12+).
+-- À exécuter application arrêtée. Les transactions terminées de plus de 30 jours partent directement
+-- dans transactions_archive, créée par l'application au démarrage précédent.
+
+\c crypto_wallet;
+
+BEGIN;
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER INDEX transactions_pkey RENAME TO transactions_legacy_pkey;
+ALTER INDEX IF EXISTS idx_transactions_wallet_created RENAME TO idx_transactions_legacy_wallet_created;
+ALTER INDEX IF EXISTS idx_transactions_status RENAME TO idx_transactions_legacy_status;
+DROP VIEW IF EXISTS transaction_history;
+
+CREATE TABLE transactions (
+    id UUID NOT NULL,
+    source_address VARCHAR(255) NOT NULL,
+    destination_address VARCHAR(255) NOT NULL,
+    amount DOUBLE PRECISION NOT NULL,
+    fees DOUBLE PRECISION NOT NULL,
+    creation_date TIMESTAMP NOT NULL,
+    fee_level VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    crypto_type VARCHAR(20) NOT NULL,
+    wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE,
+    confirmed_at TIMESTAMP NULL,
+    PRIMARY KEY (id, creation_date)
+) PARTITION BY RANGE (creation_date);
+
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- Une partition par mois couvert par les transactions restant chaudes, jusqu'à trois mois à l'avance
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+            date_trunc('month', LEAST(
+                COALESCE((SELECT MIN(creation_date) FROM transactions_legacy
+                          WHERE status = 'PENDING' OR creation_date >= now() - INTERVAL '30 days'), now()),
+                now())),
+            date_trunc('month', now()) + INTERVAL '3 months',
+            INTERVAL '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::date);
+    END LOOP;
+
+    FOR month IN
+        SELECT generate_series(date_trunc('year', MIN(creation_date)), date_trunc('year', now()), INTERVAL '1 year')::date
+        FROM transactions_legacy
+        WHERE status <> 'PENDING' AND creation_date < now() - INTERVAL '30 days'
+    LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions_archive FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_archive_p' || to_char(month, 'YYYY'), month, (month + INTERVAL '1 year')::date);
+    END LOOP;
+END $$;
+
+INSERT INTO transactions_archive
+SELECT * FROM transactions_legacy
+WHERE status <> 'PENDING' AND creation_date < now() - INTERVAL '30 days';
+
+INSERT INTO transactions
+SELECT * FROM transactions_legacy
+WHERE status = 'PENDING' OR creation_date >= now() - INTERVAL '30 days';
+
+CREATE INDEX idx_transactions_wallet_created ON transactions(wallet_id, creation_date DESC, id DESC);
+CREATE INDEX idx_transactions_status ON transactions(status);
+
+CREATE VIEW transaction_history AS
+    SELECT * FROM transactions UNION ALL SELECT * FROM transactions_archive;
+
+-- wallet_stats, si l'application l'a déjà créée : recalculée (les copies ci-dessus ont déclenché le trigger
+-- des archives) et rebranchée sur la nouvelle table
+DO $$
+BEGIN
+    IF to_regclass('wallet_stats') IS NOT NULL THEN
+        TRUNCATE wallet_stats;
+        INSERT INTO wallet_stats (wallet_id, transaction_count, pending_count, total_sent, total_fees, last_activity)
+        SELECT wallet_id, COUNT(*), COUNT(*) FILTER (WHERE status = 'PENDING'),
+               COALESCE(SUM(amount) FILTER (WHERE status <> 'REJECTED'), 0),
+               COALESCE(SUM(fees) FILTER (WHERE status <> 'REJECTED'), 0), MAX(creation_date)
+        FROM transaction_history WHERE wallet_id IS NOT NULL GROUP BY wallet_id;
+        CREATE TRIGGER trg_transactions_wallet_stats AFTER INSERT OR UPDATE OR DELETE ON transactions
+            FOR EACH ROW EXECUTE FUNCTION wallet_stats_apply();
+    END IF;
+END $$;
+
+DROP TABLE transactions_legacy;
+
+COMMIT;
@@ -9,11 +9,15 @@ CREATE TABLE wallets (
     address VARCHAR(255) NOT NULL UNIQUE,
     balance DOUBLE PRECISION NOT NULL DEFAULT 0.0,
     crypto_type VARCHAR(20) NOT NULL,
+    -- Incrémentée à chaque écriture : condition des mises à jour optimistes du solde
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Partitionnée par mois de création (PostgreSQL 12+) : la clé primaire doit contenir la clé de partition.
+-- Les partitions mensuelles transactions_pAAAA_MM sont créées par l'application (TransactionPartitionManager).
 CREATE TABLE transactions (
-    id UUID PRIMARY KEY,
+    id UUID NOT NULL,
     source_address VARCHAR(255) NOT NULL,
     destination_address VARCHAR(255) NOT NULL,
     amount DOUBLE PRECISION NOT NULL,
@@ -23,11 +27,77 @@ CREATE TABLE transactions (
     status VARCHAR(20) NOT NULL,
     crypto_type VARCHAR(20) NOT NULL,
     wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE,
-    confirmed_at TIMESTAMP NULL
+    confirmed_at TIMESTAMP NULL,
+    PRIMARY KEY (id, creation_date)
+) PARTITION BY RANGE (creation_date);
+
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- Transactions terminées (CONFIRMED, REJECTED) déplacées par l'archivage, partitionnées par année
+CREATE TABLE transactions_archive (
+    id UUID NOT NULL,
+    source_address VARCHAR(255) NOT NULL,
+    destination_address VARCHAR(255) NOT NULL,
+    amount DOUBLE PRECISION NOT NULL,
+    fees DOUBLE PRECISION NOT NULL,
+    creation_date TIMESTAMP NOT NULL,
+    fee_level VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    crypto_type VARCHAR(20) NOT NULL,
+    wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE,
+    confirmed_at TIMESTAMP NULL,
+    PRIMARY KEY (id, creation_date)
+) PARTITION BY RANGE (creation_date);
+
+CREATE TABLE transactions_archive_default PARTITION OF transactions_archive DEFAULT;
+
+-- Historique complet : partitions chaudes puis archives
+CREATE VIEW transaction_history AS
+    SELECT * FROM transactions UNION ALL SELECT * FROM transactions_archive;
+
+-- Résumé par wallet tenu à jour par trigger dans la transaction de chaque écriture.
+-- Un archivage (suppression puis insertion dans transactions_archive) s'annule.
+CREATE TABLE wallet_stats (
+    wallet_id UUID PRIMARY KEY REFERENCES wallets(id) ON DELETE CASCADE,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    pending_count BIGINT NOT NULL DEFAULT 0,
+    total_sent DOUBLE PRECISION NOT NULL DEFAULT 0.0,
+    total_fees DOUBLE PRECISION NOT NULL DEFAULT 0.0,
+    last_activity TIMESTAMP NULL
 );
 
+-- Les transactions rejetées restent comptées mais pas dans les montants; last_activity ne recule pas
+CREATE OR REPLACE FUNCTION wallet_stats_apply() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.wallet_id IS NOT NULL THEN
+        UPDATE wallet_stats SET transaction_count = transaction_count - 1,
+            pending_count = pending_count - CASE WHEN OLD.status = 'PENDING' THEN 1 ELSE 0 END,
+            total_sent = total_sent - CASE WHEN OLD.status <> 'REJECTED' THEN OLD.amount ELSE 0 END,
+            total_fees = total_fees - CASE WHEN OLD.status <> 'REJECTED' THEN OLD.fees ELSE 0 END
+        WHERE wallet_id = OLD.wallet_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.wallet_id IS NOT NULL THEN
+        INSERT INTO wallet_stats AS s (wallet_id, transaction_count, pending_count, total_sent, total_fees, last_activity)
+        VALUES (NEW.wallet_id, 1, CASE WHEN NEW.status = 'PENDING' THEN 1 ELSE 0 END,
+                CASE WHEN NEW.status <> 'REJECTED' THEN NEW.amount ELSE 0 END,
+                CASE WHEN NEW.status <> 'REJECTED' THEN NEW.fees ELSE 0 END, NEW.creation_date)
+        ON CONFLICT (wallet_id) DO UPDATE SET transaction_count = s.transaction_count + 1,
+            pending_count = s.pending_count + EXCLUDED.pending_count,
+            total_sent = s.total_sent + EXCLUDED.total_sent,
+            total_fees = s.total_fees + EXCLUDED.total_fees,
+            last_activity = GREATEST(s.last_activity, EXCLUDED.last_activity);
+    END IF;
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_transactions_wallet_stats AFTER INSERT OR UPDATE OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION wallet_stats_apply();
+CREATE TRIGGER trg_transactions_archive_wallet_stats AFTER INSERT OR UPDATE OR DELETE ON transactions_archive
+    FOR EACH ROW EXECUTE FUNCTION wallet_stats_apply();
+
 -- Index pour améliorer les performances
-CREATE INDEX idx_transactions_wallet_id ON transactions(wallet_id);
+-- Historique d'un wallet paginé par (creation_date, id) : sert aussi les recherches par wallet_id seul
+CREATE INDEX idx_transactions_wallet_created ON transactions(wallet_id, creation_date DESC, id DESC);
 CREATE INDEX idx_transactions_status ON transactions(status);
-CREATE INDEX idx_transactions_creation_date ON transactions(creation_date);
+CREATE INDEX idx_transactions_archive_wallet_created ON transactions_archive(wallet_id, creation_date DESC, id DESC);
 CREATE INDEX idx_wallets_address ON wallets(address);
\ No newline at end of file
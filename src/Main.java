@@ -2,9 +2,18 @@
 import main.java.com.crypto.services.WalletService;
 import main.java.com.crypto.services.TransactionService;
 import main.java.com.crypto.services.MempoolService;
+import main.java.com.crypto.services.ExpiryService;
+import main.java.com.crypto.services.MempoolPersistenceService;
+import main.java.com.crypto.services.WriteBehindService;
+import main.java.com.crypto.services.TransactionArchiveService;
 import main.java.com.crypto.repositories.WalletRepository;
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.repositories.LogStorage;
+import main.java.com.crypto.repositories.DatabaseConnection;
 import main.java.com.crypto.models.Wallet;
 import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.MempoolSnapshot;
+import main.java.com.crypto.models.WalletStats;
 import main.java.com.crypto.enums.CryptoType;
 import main.java.com.crypto.enums.FeeLevel;
 import main.java.com.crypto.enums.TransactionStatus;
@@ -12,6 +21,9 @@ import main.java.com.crypto.utils.LoggerUtil;
 import main.java.com.crypto.exceptions.InvalidAddressException;
 import main.java.com.crypto.exceptions.InsufficientBalanceException;
 import main.java.com.crypto.exceptions.InvalidAmountException;
+import main.java.com.crypto.exceptions.FeeTooLowException;
+import main.java.com.crypto.exceptions.TooManyPendingTransactionsException;
+import main.java.com.crypto.exceptions.WriteQueueFullException;
 
 import java.util.Scanner;
 import java.util.List;
@@ -35,6 +47,11 @@ public class Main {
             mempoolService = MempoolService.getInstance();
 
             initializeDatabase();
+            // Rejoue le journal d'écriture différée avant de recouper le mempool avec la base
+            WriteBehindService.getInstance().start();
+            MempoolPersistenceService.getInstance().restore();
+            ExpiryService.getInstance().start();
+            TransactionArchiveService.getInstance().start();
 
             System.out.println("=== CRYPTO WALLET SIMULATOR ===");
             System.out.println("Application initialisée avec succès!");
@@ -107,12 +124,25 @@ public class Main {
             LoggerUtil.logError("Erreur critique dans l'application: " + e.getMessage(), e);
             System.out.println("Une erreur critique est survenue. Voir les logs pour plus de détails.");
         } finally {
+            ExpiryService.getInstance().stop();
+            TransactionArchiveService.getInstance().stop();
+            WriteBehindService.getInstance().stop();
+            MempoolPersistenceService.getInstance().saveSnapshot();
+            if (walletService != null) {
+                LoggerUtil.logInfo(walletService.getCacheStatistics());
+            }
+            DatabaseConnection.shutdown();
+            LogStorage.shutdown();
             scanner.close();
             LoggerUtil.logInfo("Application fermée");
         }
     }
 
     private static void initializeDatabase() {
+        if (RepositoryFactory.isEmbedded()) {
+            LoggerUtil.logInfo("Stockage embarqué : aucune base de données à initialiser");
+            return;
+        }
         try {
             WalletRepository walletRepo = WalletRepository.getInstance();
             walletRepo.initializeDatabase();
@@ -225,17 +255,14 @@ public class Main {
         System.out.println("Wallets disponibles:");
         for (int i = 0; i < wallets.size(); i++) {
             Wallet wallet = wallets.get(i);
-            // Charger les transactions pour chaque wallet
-            List<Transaction> transactions = transactionService.getTransactionsByWallet(wallet);
-            wallet.loadTransactions(transactions);
-
+            // Nombre lu dans wallet_stats : l'historique n'est chargé que pour le wallet choisi
             System.out.printf("%d. %s (%s) - Solde: %.6f %s - Transactions: %d%n",
                     i + 1,
                     wallet.getAddress(),
                     wallet.getCryptoType(),
                     wallet.getBalance(),
                     wallet.getCryptoType().getSymbol(),
-                    transactions.size());
+                    transactionService.countTransactionsByWallet(wallet));
         }
 
         int choice = getIntInput("Choisissez un wallet: ");
@@ -244,10 +271,8 @@ public class Main {
             return;
         }
 
+        // L'historique du wallet n'est lu qu'à la demande, page par page
         currentWallet = wallets.get(choice - 1);
-        // Charger les transactions du wallet sélectionné
-        List<Transaction> transactions = transactionService.getTransactionsByWallet(currentWallet);
-        currentWallet.loadTransactions(transactions);
 
         System.out.println("Wallet sélectionné: " + currentWallet.getAddress());
         System.out.println("Transactions: " + currentWallet.getTransactions().size());
@@ -313,16 +338,13 @@ public class Main {
 
             int position = mempoolService.calculatePosition(transaction);
             long estimatedTime = mempoolService.estimateTime(position, feeLevel);
-            System.out.println("Position dans le mempool: " + position + " / " + mempoolService.getMempoolSize());
+            System.out.println("Position dans le mempool: " + position + " / " + mempoolService.getMempoolSize(currentWallet.getCryptoType()));
             System.out.println("Temps d'attente estimé: " + estimatedTime + " minutes");
 
 
             Optional<Wallet> walletMaj = walletService.getWalletById(currentWallet.getId());
             if (walletMaj.isPresent()) {
                 currentWallet = walletMaj.get();
-                List<Transaction> transactions = transactionService.getTransactionsByWallet(currentWallet);
-                currentWallet.loadTransactions(transactions);
-
 
                 System.out.println("\n=== MISE À JOUR DU WALLET ===");
                 System.out.printf("Solde avant: %.6f %s%n", ancienSolde, currentWallet.getCryptoType().getSymbol());
@@ -337,6 +359,12 @@ public class Main {
             System.out.println("Solde insuffisant: " + e.getMessage());
         } catch (InvalidAmountException e) {
             System.out.println("Erreur de montant: " + e.getMessage());
+        } catch (FeeTooLowException e) {
+            System.out.println("Frais insuffisants: " + e.getMessage());
+        } catch (TooManyPendingTransactionsException e) {
+            System.out.println("Transaction refusée: " + e.getMessage());
+        } catch (WriteQueueFullException e) {
+            System.out.println("Système surchargé, réessayez: " + e.getMessage());
         } catch (Exception e) {
             System.out.println("Erreur lors de la création de la transaction: " + e.getMessage());
             LoggerUtil.logError("Erreur création transaction: " + e.getMessage(), e);
@@ -349,12 +377,16 @@ public class Main {
             return;
         }
 
-        // Recharger les transactions
-        List<Transaction> transactions = transactionService.getTransactionsByWallet(currentWallet);
-        currentWallet.loadTransactions(transactions);
+        // Recharger les transactions : les plus récentes d'abord, arrêt dès que toutes les transactions en
+        // attente comptées par wallet_stats ont été trouvées
+        walletService.reloadTransactions(currentWallet);
+        long pendingCount = transactionService.getWalletStats(currentWallet)
+                .map(WalletStats::getPendingCount)
+                .orElse(Long.MAX_VALUE);
 
         List<Transaction> pendingTransactions = currentWallet.getTransactions().stream()
                 .filter(t -> t.getStatus() == TransactionStatus.PENDING)
+                .limit(pendingCount)
                 .collect(Collectors.toList());
 
         if (pendingTransactions.isEmpty()) {
@@ -369,7 +401,7 @@ public class Main {
             Transaction tx = pendingTransactions.get(i);
             int position = mempoolService.calculatePosition(tx);
             long estimatedTime = mempoolService.estimateTime(position, tx.getFeeLevel());
-            int totalTransactions = mempoolService.getMempoolSize();
+            int totalTransactions = mempoolService.getMempoolSize(tx.getCryptoType());
 
             System.out.printf("%d. Transaction: %s%n", i + 1, tx.getId().toString().substring(0, 8) + "...");
             System.out.printf("   Montant: %.6f %s%n", tx.getAmount(), currentWallet.getCryptoType().getSymbol());
@@ -378,6 +410,47 @@ public class Main {
             System.out.printf("   Temps estimé: %d minutes%n", estimatedTime);
             System.out.println("   --------------------");
         }
+
+        int choice = getIntInput("Accélérer une transaction (numéro, 0 pour revenir): ");
+        if (choice < 1 || choice > pendingTransactions.size()) {
+            return;
+        }
+        bumpTransactionFee(pendingTransactions.get(choice - 1));
+    }
+
+    private static void bumpTransactionFee(Transaction transaction) {
+        System.out.println("Nouveau niveau de frais:");
+        System.out.println("1. Économique (lent)");
+        System.out.println("2. Standard (moyen)");
+        System.out.println("3. Rapide (rapide)");
+
+        int feeChoice = getIntInput("Votre choix: ");
+        if (feeChoice < 1 || feeChoice > 3) {
+            System.out.println("Choix invalide.");
+            return;
+        }
+        FeeLevel feeLevel = FeeLevel.values()[feeChoice - 1];
+
+        try {
+            Transaction replacement = transactionService.bumpFee(currentWallet, transaction.getId(), feeLevel);
+            if (replacement == null) {
+                System.out.println("Erreur lors du remplacement de la transaction.");
+                return;
+            }
+            int position = mempoolService.calculatePosition(replacement);
+            System.out.println("Transaction remplacée: " + replacement.getId());
+            System.out.printf("Frais: %.6f -> %.6f %s%n", transaction.getFees(), replacement.getFees(),
+                    currentWallet.getCryptoType().getSymbol());
+            System.out.println("Nouvelle position: " + position + " / "
+                    + mempoolService.getMempoolSize(currentWallet.getCryptoType()));
+        } catch (FeeTooLowException e) {
+            System.out.println("Frais insuffisants: " + e.getMessage());
+        } catch (InsufficientBalanceException e) {
+            System.out.println("Solde insuffisant: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Erreur lors de l'accélération de la transaction: " + e.getMessage());
+            LoggerUtil.logError("Erreur accélération transaction: " + e.getMessage(), e);
+        }
     }
 
     private static void compareFeeLevels() {
@@ -402,7 +475,11 @@ public class Main {
         System.out.println("│ Niveau       │ Frais       │ Position │ Temps estimé │ Coût total   │");
         System.out.println("├──────────────┼────────────┼──────────┼──────────────┼──────────────┤");
 
-        for (FeeLevel level : FeeLevel.values()) {
+        FeeLevel[] levels = FeeLevel.values();
+        int[] positions = mempoolService.calculateSimulatedPositions(currentWallet.getCryptoType(), amount, levels);
+
+        for (int i = 0; i < levels.length; i++) {
+            FeeLevel level = levels[i];
             try {
                 Transaction tempTx = transactionService.createSimulatedTransaction(
                         currentWallet,
@@ -411,7 +488,7 @@ public class Main {
                         level
                 );
 
-                int position = mempoolService.calculateSimulatedPosition(tempTx, level);
+                int position = positions[i];
                 long estimatedTime = mempoolService.estimateTime(position, level);
                 double totalCost = tempTx.getAmount() + tempTx.getFees();
 
@@ -434,10 +511,17 @@ public class Main {
 
         mempoolService.generateRandomTransactions(15);
 
-        List<Transaction> mempoolTransactions = mempoolService.getSortedMempoolTransactions();
-        int totalTransactions = mempoolTransactions.size();
+        // Un seul instantané pour que le top 10 et le total soient cohérents
+        MempoolSnapshot snapshot = mempoolService.getMempoolSnapshot();
+        List<Transaction> mempoolTransactions = snapshot.topN(10);
+        int totalTransactions = snapshot.size();
 
         System.out.println("Transactions en attente: " + totalTransactions);
+        System.out.printf("Mémoire utilisée: %.2f / %.2f Mo - Frais minimum %s: %.6f%n",
+                mempoolService.getMemoryUsage() / (1024.0 * 1024.0),
+                mempoolService.getMaxMemory() / (1024.0 * 1024.0),
+                currentWallet.getCryptoType().getSymbol(),
+                mempoolService.getMinimumFee(currentWallet.getCryptoType()));
         System.out.println("┌──────────────────────────────────┬────────────┬────────────┬──────────┐");
         System.out.println("│ Transaction                      │ Frais       │ Priorité   │ Position │");
         System.out.println("├──────────────────────────────────┼────────────┼────────────┼──────────┤");
@@ -449,9 +533,7 @@ public class Main {
             String suffix = "";
 
             if (currentWallet != null) {
-                List<Transaction> walletTransactions = transactionService.getTransactionsByWallet(currentWallet);
-                boolean isUserTransaction = walletTransactions.stream()
-                        .anyMatch(t -> t.getId().equals(tx.getId()));
+                boolean isUserTransaction = currentWallet.getId().equals(tx.getWalletId());
 
                 if (isUserTransaction) {
                     prefix = ">>> ";
@@ -463,8 +545,8 @@ public class Main {
                     prefix + displayId + suffix, tx.getFees(), tx.getFeeLevel(), i + 1);
         }
 
-        if (mempoolTransactions.size() > 10) {
-            System.out.printf("│ ... %-26d transactions supplémentaires ... │%n", mempoolTransactions.size() - 10);
+        if (totalTransactions > 10) {
+            System.out.printf("│ ... %-26d transactions supplémentaires ... │%n", totalTransactions - 10);
         }
 
         System.out.println("└──────────────────────────────────┴────────────┴────────────┴──────────┘");
@@ -476,12 +558,10 @@ public class Main {
             return;
         }
 
-        // ⚠️ FORCER LE RECHARGEMENT
+        // ⚠️ FORCER LE RECHARGEMENT (solde seulement : l'historique est lu page par page)
         Optional<Wallet> walletOpt = walletService.getWalletById(currentWallet.getId());
         if (walletOpt.isPresent()) {
             currentWallet = walletOpt.get();
-            List<Transaction> transactions = transactionService.getTransactionsByWallet(currentWallet);
-            currentWallet.loadTransactions(transactions);
         }
 
         System.out.println("\n=== INFORMATIONS DU WALLET ===");
@@ -490,8 +570,18 @@ public class Main {
         System.out.println("Type: " + currentWallet.getCryptoType());
         System.out.printf("Solde: %.6f %s%n", currentWallet.getBalance(), currentWallet.getCryptoType().getSymbol());
 
-        List<Transaction> transactions = currentWallet.getTransactions();
-        System.out.println("Nombre total de transactions: " + transactions.size());
+        Optional<WalletStats> stats = transactionService.getWalletStats(currentWallet);
+        if (stats.isPresent()) {
+            String symbol = currentWallet.getCryptoType().getSymbol();
+            System.out.println("Nombre total de transactions: " + stats.get().getTransactionCount());
+            System.out.println("Transactions en attente: " + stats.get().getPendingCount());
+            System.out.printf("Total envoyé: %.6f %s - Frais payés: %.6f %s%n",
+                    stats.get().getTotalSent(), symbol, stats.get().getTotalFees(), symbol);
+            if (stats.get().getLastActivity() != null) {
+                System.out.println("Dernière activité: " + stats.get().getLastActivity().toLocalDate());
+            }
+        }
+        List<Transaction> transactions = transactionService.getTransactionPage(currentWallet, null, 5);
 
         if (!transactions.isEmpty()) {
             System.out.println("\nDernières transactions:");
@@ -499,15 +589,12 @@ public class Main {
             System.out.println("│ ID                               │ Montant     │ Frais      │ Statut     │ Date     │");
             System.out.println("├──────────────────────────────────┼────────────┼────────────┼────────────┼──────────┤");
 
-            transactions.stream()
-                    .sorted((t1, t2) -> t2.getCreationDate().compareTo(t1.getCreationDate()))
-                    .limit(5)
-                    .forEach(tx -> {
-                        String shortId = tx.getId().toString().substring(0, 8) + "...";
-                        String date = tx.getCreationDate().toLocalDate().toString();
-                        System.out.printf("│ %-32s │ %-10.6f │ %-10.6f │ %-10s │ %-8s │%n",
-                                shortId, tx.getAmount(), tx.getFees(), tx.getStatus(), date);
-                    });
+            transactions.forEach(tx -> {
+                String shortId = tx.getId().toString().substring(0, 8) + "...";
+                String date = tx.getCreationDate().toLocalDate().toString();
+                System.out.printf("│ %-32s │ %-10.6f │ %-10.6f │ %-10s │ %-8s │%n",
+                        shortId, tx.getAmount(), tx.getFees(), tx.getStatus(), date);
+            });
 
             System.out.println("└──────────────────────────────────┴────────────┴────────────┴────────────┴──────────┘");
         } else {
@@ -1,16 +1,85 @@
 package main.java.com.crypto.config;
 
 public class DatabaseConfig {
+    // "postgres" (par défaut), "memory" (en mémoire, sans base ni pilote JDBC) ou "log" (journal embarqué)
+    public static final String STORAGE_BACKEND = getString("STORAGE_BACKEND", "postgres");
+
     public static final String URL = System.getenv("DB_URL");
     public static final String USERNAME = System.getenv("DB_USERNAME");
     public static final String PASSWORD = System.getenv("DB_PASSWORD");
     public static final String DRIVER = System.getenv("DB_DRIVER");
 
-    static {
+    // Pool de connexions
+    public static final int POOL_MAX_SIZE = getInt("DB_POOL_MAX_SIZE", 10);
+    public static final long POOL_BORROW_TIMEOUT_MILLIS = getLong("DB_POOL_BORROW_TIMEOUT_MS", 5_000);
+    public static final long POOL_IDLE_TIMEOUT_MILLIS = getLong("DB_POOL_IDLE_TIMEOUT_MS", 10L * 60 * 1000);
+    public static final long POOL_MAX_LIFETIME_MILLIS = getLong("DB_POOL_MAX_LIFETIME_MS", 30L * 60 * 1000);
+    public static final int POOL_VALIDATION_TIMEOUT_SECONDS = getInt("DB_POOL_VALIDATION_TIMEOUT_S", 2);
+
+    // Nombre de wallets gardés en cache devant la base (0 pour désactiver le cache)
+    public static final int WALLET_CACHE_SIZE = getInt("WALLET_CACHE_SIZE", 1_024);
+    // Bandes de verrous par wallet : les opérations d'un même wallet sont sérialisées
+    public static final int WALLET_LOCK_STRIPES = getInt("WALLET_LOCK_STRIPES", 256);
+    // Mises à jour optimistes du solde (colonne version) : tentatives en cas de conflit avec une autre
+    // instance, et attente maximale avant la deuxième tentative, doublée ensuite à chaque conflit
+    public static final int WALLET_UPDATE_MAX_ATTEMPTS = getInt("WALLET_UPDATE_MAX_ATTEMPTS", 8);
+    public static final long WALLET_UPDATE_BACKOFF_MILLIS = getLong("WALLET_UPDATE_BACKOFF_MS", 2);
+
+    // Écriture différée : les soumissions sont journalisées localement puis écrites en base par lots
+    public static final boolean WRITE_BEHIND_ENABLED = Boolean.parseBoolean(getString("WRITE_BEHIND_ENABLED", "false"));
+    public static final String WRITE_BEHIND_JOURNAL_PATH = getString("WRITE_BEHIND_JOURNAL_PATH", "data/write-behind.journal");
+    public static final int WRITE_BEHIND_FLUSH_SIZE = getInt("WRITE_BEHIND_FLUSH_SIZE", 500);
+    public static final long WRITE_BEHIND_FLUSH_LATENCY_MILLIS = getLong("WRITE_BEHIND_FLUSH_LATENCY_MS", 20);
+    public static final int WRITE_BEHIND_QUEUE_CAPACITY = getInt("WRITE_BEHIND_QUEUE_CAPACITY", 10_000);
+    public static final long WRITE_BEHIND_OFFER_TIMEOUT_MILLIS = getLong("WRITE_BEHIND_OFFER_TIMEOUT_MS", 2_000);
+
+    // Partitions mensuelles des transactions : mois passés créés au premier démarrage, mois créés à l'avance
+    public static final int TRANSACTION_PARTITION_MONTHS_BACK = getInt("TRANSACTION_PARTITION_MONTHS_BACK", 12);
+    public static final int TRANSACTION_PARTITION_MONTHS_AHEAD = getInt("TRANSACTION_PARTITION_MONTHS_AHEAD", 3);
+    // Archivage des transactions terminées plus anciennes que ce délai, par lots
+    public static final int TRANSACTION_ARCHIVE_AFTER_DAYS = getInt("TRANSACTION_ARCHIVE_AFTER_DAYS", 30);
+    public static final int TRANSACTION_ARCHIVE_BATCH_SIZE = getInt("TRANSACTION_ARCHIVE_BATCH_SIZE", 10_000);
+    public static final long TRANSACTION_ARCHIVE_INTERVAL_MILLIS = getLong("TRANSACTION_ARCHIVE_INTERVAL_MS", 60L * 60 * 1000);
+
+    // Journal de stockage embarqué (STORAGE_BACKEND=log)
+    public static final String LOG_DIRECTORY = getString("LOG_DIRECTORY", "data/log");
+    public static final int LOG_SEGMENT_BYTES = getInt("LOG_SEGMENT_BYTES", 64 * 1024 * 1024);
+    // "always" (fsync avant chaque retour, partagé entre écrivains concurrents), "group" (fsync périodique) ou "none"
+    public static final String LOG_FSYNC_POLICY = getString("LOG_FSYNC_POLICY", "group");
+    public static final long LOG_FSYNC_INTERVAL_MILLIS = getLong("LOG_FSYNC_INTERVAL_MS", 10);
+    // Un segment est compacté quand la part de ses octets encore utiles passe sous ce seuil
+    public static final double LOG_COMPACTION_THRESHOLD = getDouble("LOG_COMPACTION_THRESHOLD", 0.5);
+    public static final long LOG_COMPACTION_INTERVAL_MILLIS = getLong("LOG_COMPACTION_INTERVAL_MS", 60_000);
+
+    // Chargé à la première connexion seulement : le stockage en mémoire n'a pas besoin de DB_DRIVER
+    public static void loadDriver() {
+        if (DRIVER == null) {
+            return;
+        }
         try {
             Class.forName(DRIVER);
         } catch (ClassNotFoundException e) {
-            throw new ExceptionInInitializerError("Driver PostgreSQL non trouvé: " + e.getMessage());
+            throw new IllegalStateException("Driver PostgreSQL non trouvé: " + e.getMessage(), e);
         }
     }
+
+    private static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int getInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long getLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Double.parseDouble(value.trim());
+    }
 }
@@ -0,0 +1,58 @@
+package main.java.com.crypto.config;
+
+import main.java.com.crypto.enums.FeeLevel;
+
+public class MempoolConfig {
+    // Limite mémoire du mempool en octets (300 Mo par défaut, comme maxmempool de Bitcoin Core)
+    public static final long MAX_MEMORY_BYTES = getLong("MEMPOOL_MAX_BYTES", 300L * 1024 * 1024);
+    // Bandes par CryptoType (arrondi à la puissance de deux supérieure) : les wallets de bandes différentes
+    // écrivent en parallèle. Mémoire et plancher de frais sont répartis par bande.
+    public static final int STRIPES = getInt("MEMPOOL_STRIPES", 4);
+    // Incrément ajouté aux frais de la dernière transaction évincée pour fixer le plancher
+    public static final double INCREMENTAL_FEE = getDouble("MEMPOOL_INCREMENTAL_FEE", 0.00001);
+    // Demi-vie de la décroissance du plancher de frais
+    public static final long MIN_FEE_HALF_LIFE_MILLIS = getLong("MEMPOOL_MIN_FEE_HALF_LIFE_MS", 12L * 60 * 60 * 1000);
+
+    // Durée de vie d'une transaction en attente selon son niveau de frais, à partir de sa date de création
+    public static final long ECONOMIQUE_EXPIRY_MILLIS = getLong("MEMPOOL_EXPIRY_ECONOMIQUE_MS", 72L * 60 * 60 * 1000);
+    public static final long STANDARD_EXPIRY_MILLIS = getLong("MEMPOOL_EXPIRY_STANDARD_MS", 24L * 60 * 60 * 1000);
+    public static final long RAPIDE_EXPIRY_MILLIS = getLong("MEMPOOL_EXPIRY_RAPIDE_MS", 6L * 60 * 60 * 1000);
+    // Pas de la roue temporelle d'expiration et nombre de cases par niveau
+    public static final long EXPIRY_TICK_MILLIS = getLong("MEMPOOL_EXPIRY_TICK_MS", 1000);
+    public static final int EXPIRY_WHEEL_SIZE = 64;
+
+    // Fichier d'instantané du mempool relu au démarrage
+    public static final String SNAPSHOT_PATH = getString("MEMPOOL_SNAPSHOT_PATH", "data/mempool.dat");
+
+    public static long getExpiryMillis(FeeLevel feeLevel) {
+        if (feeLevel == null) {
+            return STANDARD_EXPIRY_MILLIS;
+        }
+        switch (feeLevel) {
+            case ECONOMIQUE: return ECONOMIQUE_EXPIRY_MILLIS;
+            case RAPIDE: return RAPIDE_EXPIRY_MILLIS;
+            case STANDARD:
+            default: return STANDARD_EXPIRY_MILLIS;
+        }
+    }
+
+    private static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int getInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long getLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Double.parseDouble(value.trim());
+    }
+}
@@ -1,16 +1,29 @@
 package main.java.com.crypto.enums;
 
 public enum CryptoType {
-    BITCOIN("BTC"),
-    ETHEREUM("ETH");
+    // Capacité d'un bloc et poids d'une transaction simple : vbytes pour BTC, gas pour ETH
+    BITCOIN("BTC", 1_000_000L, 250L),
+    ETHEREUM("ETH", 30_000_000L, 21_000L);
 
     private final String symbol;
+    private final long blockCapacity;
+    private final long transactionWeight;
 
-    CryptoType(String symbol) {
+    CryptoType(String symbol, long blockCapacity, long transactionWeight) {
         this.symbol = symbol;
+        this.blockCapacity = blockCapacity;
+        this.transactionWeight = transactionWeight;
     }
 
     public String getSymbol() {
         return symbol;
     }
+
+    public long getBlockCapacity() {
+        return blockCapacity;
+    }
+
+    public long getTransactionWeight() {
+        return transactionWeight;
+    }
 }
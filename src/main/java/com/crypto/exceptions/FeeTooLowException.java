@@ -0,0 +1,11 @@
+package main.java.com.crypto.exceptions;
+
+public class FeeTooLowException extends RuntimeException {
+    public FeeTooLowException(String message) {
+        super(message);
+    }
+
+    public FeeTooLowException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package main.java.com.crypto.exceptions;
+
+public class TooManyPendingTransactionsException extends RuntimeException {
+    public TooManyPendingTransactionsException(String message) {
+        super(message);
+    }
+
+    public TooManyPendingTransactionsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
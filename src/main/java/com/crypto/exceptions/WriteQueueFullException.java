@@ -0,0 +1,11 @@
+package main.java.com.crypto.exceptions;
+
+public class WriteQueueFullException extends RuntimeException {
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+
+    public WriteQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package main.java.com.crypto.exceptions;
+
+public class WriteRejectedException extends RuntimeException {
+    public WriteRejectedException(String message) {
+        super(message);
+    }
+
+    public WriteRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,9 +1,17 @@
 package main.java.com.crypto.interfaces;
 
 import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.WalletStats;
+import main.java.com.crypto.enums.TransactionStatus;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.time.LocalDateTime;
 
 public interface ITransaction {
     Optional<Transaction> findById(UUID id);
@@ -12,4 +20,22 @@ public interface ITransaction {
     void deleteById(UUID id);
     List<Transaction> findByWalletId(UUID walletId);
     List<Transaction> findByStatus(String status);
+    Set<UUID> findIdsByStatus(TransactionStatus status);
+    List<Transaction> findByIds(Collection<UUID> ids);
+    List<Transaction> findPageByWalletId(UUID walletId, LocalDateTime beforeDate, UUID beforeId, int limit);
+    int countByWalletId(UUID walletId);
+    long forEachByWalletId(UUID walletId, Consumer<Transaction> consumer);
+    long forEachByStatus(TransactionStatus status, Consumer<Transaction> consumer);
+    boolean updateStatus(UUID id, TransactionStatus status);
+    int saveAll(Collection<Transaction> transactions);
+    OptionalDouble saveAndDebit(Transaction transaction, double totalAmount);
+    Set<UUID> saveAllAndDebit(List<Transaction> transactions, double[] debits);
+    int updateStatusAll(Collection<UUID> ids, TransactionStatus status);
+    Map<UUID, Double> rejectAndRefund(Collection<UUID> ids);
+
+    // Repli pour les stockages sans projection wallet_stats : agrège tout l'historique du wallet
+    default Optional<WalletStats> findStatsByWalletId(UUID walletId) {
+        WalletStats stats = new WalletStats(walletId);
+        return forEachByWalletId(walletId, stats::add) < 0 ? Optional.empty() : Optional.of(stats);
+    }
 }
@@ -1,7 +1,9 @@
 package main.java.com.crypto.interfaces;
 
 import main.java.com.crypto.models.Wallet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +13,9 @@ public interface IWallet {
     Wallet save(Wallet wallet);
     void deleteById(UUID id);
     Optional<Wallet> findByAddress(String address);
+    boolean updateBalance(UUID id, double balance);
+    // Écrit le solde seulement si le wallet est toujours à expectedVersion; false en cas de conflit
+    boolean updateBalanceIfVersion(UUID id, long expectedVersion, double balance);
+    int saveAll(Collection<Wallet> wallets);
+    int updateBalanceAll(Map<UUID, Double> balances);
 }
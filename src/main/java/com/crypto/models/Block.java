@@ -0,0 +1,46 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.enums.CryptoType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class Block {
+    private UUID id;
+    private CryptoType cryptoType;
+    private List<Transaction> transactions;
+    private long totalWeight;
+    private double totalFees;
+    private LocalDateTime creationDate;
+
+    public Block(CryptoType cryptoType, List<Transaction> transactions, long totalWeight, double totalFees) {
+        this.id = UUID.randomUUID();
+        this.cryptoType = cryptoType;
+        this.transactions = transactions;
+        this.totalWeight = totalWeight;
+        this.totalFees = totalFees;
+        this.creationDate = LocalDateTime.now();
+    }
+
+    public UUID getId() { return id; }
+
+    public CryptoType getCryptoType() { return cryptoType; }
+
+    public List<Transaction> getTransactions() { return transactions; }
+
+    public long getTotalWeight() { return totalWeight; }
+
+    public double getTotalFees() { return totalFees; }
+
+    public LocalDateTime getCreationDate() { return creationDate; }
+
+    public int getTransactionCount() {
+        return transactions.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Block{id=%s, type=%s, transactions=%d, weight=%d/%d, fees=%.6f}",
+                id, cryptoType, transactions.size(), totalWeight, cryptoType.getBlockCapacity(), totalFees);
+    }
+}
@@ -0,0 +1,456 @@
+package main.java.com.crypto.models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+// Arbre AVL augmenté (taille des sous-arbres) trié par frais décroissants puis par id.
+// Permet de calculer un rang en O(log n) et de lire le top k en O(log n + k).
+// La clé est fournie à l'insertion : le mempool y place le score du paquet (frais effectifs).
+// L'arbre est persistant : chaque modification renvoie une nouvelle version en ne recopiant que le
+// chemin modifié (O(log n) noeuds). Une version déjà publiée ne change jamais et sert d'instantané.
+public final class FeeIndex {
+    private static final FeeIndex EMPTY = new FeeIndex(null, 0);
+
+    private final Node root;
+    private final long version;
+
+    private static final class Node {
+        final double fee;
+        final UUID id;
+        final Transaction transaction;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(double fee, UUID id, Transaction transaction, Node left, Node right) {
+            this.fee = fee;
+            this.id = id;
+            this.transaction = transaction;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private FeeIndex(Node root, long version) {
+        this.root = root;
+        this.version = version;
+    }
+
+    public static FeeIndex empty() {
+        return EMPTY;
+    }
+
+    // Nouvelle version contenant uniquement les entrées données, déjà triées dans l'ordre de l'index.
+    // L'arbre équilibré est construit en O(n); renvoie null si l'ordre n'est pas respecté.
+    public FeeIndex replaceAll(double[] fees, Transaction[] transactions, int count) {
+        for (int i = 1; i < count; i++) {
+            if (compare(fees[i], transactions[i].getId(), fees[i - 1], transactions[i - 1].getId()) <= 0) {
+                return null;
+            }
+        }
+        return new FeeIndex(build(fees, transactions, 0, count - 1), version + 1);
+    }
+
+    public FeeIndex insert(double fee, Transaction transaction) {
+        return new FeeIndex(insert(root, fee, transaction.getId(), transaction), version + 1);
+    }
+
+    // Renvoie la même version si l'entrée est absente
+    public FeeIndex remove(double fee, UUID id) {
+        Node newRoot = remove(root, fee, id);
+        return newRoot == root ? this : new FeeIndex(newRoot, version + 1);
+    }
+
+    public FeeIndex clear() {
+        return new FeeIndex(null, version + 1);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    // Position (1-based) d'une transaction présente dans l'index, -1 sinon
+    public int rankOf(double fee, UUID id) {
+        Node node = root;
+        int rank = 0;
+        while (node != null) {
+            int cmp = compare(fee, id, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return rank + size(node.left) + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Nombre de transactions dont les frais sont strictement supérieurs
+    public int countHigherThan(double fee) {
+        Node node = root;
+        int count = 0;
+        while (node != null) {
+            if (node.fee > fee) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Nombre de transactions dont les frais sont supérieurs ou égaux
+    public int countAtLeast(double fee) {
+        Node node = root;
+        int count = 0;
+        while (node != null) {
+            if (node.fee >= fee) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Nombre d'entrées placées avant (fee, id) dans l'ordre de l'index, que cette entrée soit présente ou non :
+    // rang d'une transaction d'un autre index fusionné avec celui-ci
+    public int countBefore(double fee, UUID id) {
+        Node node = root;
+        int count = 0;
+        while (node != null) {
+            if (compare(fee, id, node) > 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Transaction avec les frais les plus bas, null si l'index est vide
+    public Transaction last() {
+        Node node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.transaction;
+    }
+
+    public List<Transaction> top(int k) {
+        return page(0, k);
+    }
+
+    // Transactions aux positions [offset, offset + limit) en O(log n + limit)
+    public List<Transaction> page(int offset, int limit) {
+        int start = Math.max(0, offset);
+        int count = Math.max(0, Math.min(limit, size() - start));
+        List<Transaction> result = new ArrayList<>(count);
+        collect(root, start, count, result);
+        return result;
+    }
+
+    public List<Transaction> toList() {
+        return top(size());
+    }
+
+    // Parcours par frais décroissants, interrompu dès que le visiteur renvoie false
+    public void forEachDescending(Predicate<Transaction> visitor) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            if (!visitor.test(node.transaction)) {
+                return;
+            }
+            node = node.right;
+        }
+    }
+
+    // Fusion de plusieurs index sur leur propre clé (score du paquet, puis id) : le résultat suit l'ordre
+    // qu'aurait un index unique contenant toutes les entrées. O((n + k) log k) pour k index.
+    public static List<Transaction> merge(List<FeeIndex> indexes, int limit) {
+        int total = 0;
+        for (FeeIndex index : indexes) {
+            total += index.size();
+        }
+        List<Transaction> result = new ArrayList<>(Math.min(total, limit));
+        if (limit > 0) {
+            forEachDescending(indexes, (source, transaction) -> {
+                result.add(transaction);
+                return result.size() < limit;
+            });
+        }
+        return result;
+    }
+
+    // Positions [offset, offset + limit) de la fusion sans parcourir les offset premières entrées : le départ
+    // dans chaque index est trouvé par dichotomie sur le rang global d'une entrée (son rang local plus
+    // countBefore dans les autres index). O(k² log² n + limit log k) pour k index.
+    public static List<Transaction> mergePage(List<FeeIndex> indexes, int offset, int limit) {
+        List<Transaction> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        int start = Math.max(0, offset);
+        int[] skips = new int[indexes.size()];
+        for (int i = 0; i < indexes.size(); i++) {
+            skips[i] = countRankedBefore(indexes, i, start);
+        }
+        forEachDescending(indexes, skips, (source, transaction) -> {
+            result.add(transaction);
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    // Nombre d'entrées de l'index i placées avant la position globale offset dans la fusion
+    private static int countRankedBefore(List<FeeIndex> indexes, int i, int offset) {
+        FeeIndex index = indexes.get(i);
+        int low = 0;
+        int high = index.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Node node = index.nodeAt(mid);
+            int globalRank = mid;
+            for (int j = 0; j < indexes.size() && globalRank < offset; j++) {
+                if (j != i) {
+                    globalRank += indexes.get(j).countBefore(node.fee, node.id);
+                }
+            }
+            if (globalRank < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Entrée à la position donnée (0-based), présente
+    private Node nodeAt(int position) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position == leftSize) {
+                return node;
+            } else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    public interface MergeVisitor {
+        // source : position dans la liste des index de l'index d'où vient la transaction
+        boolean visit(int source, Transaction transaction);
+    }
+
+    // Parcours fusionné de plusieurs index dans l'ordre global, interrompu dès que le visiteur renvoie false
+    public static void forEachDescending(List<FeeIndex> indexes, MergeVisitor visitor) {
+        forEachDescending(indexes, new int[indexes.size()], visitor);
+    }
+
+    // skips : nombre d'entrées ignorées en tête de chaque index
+    private static void forEachDescending(List<FeeIndex> indexes, int[] skips, MergeVisitor visitor) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, indexes.size()),
+                (a, b) -> compare(a.node.fee, a.node.id, b.node));
+        for (int i = 0; i < indexes.size(); i++) {
+            Cursor cursor = new Cursor(i, indexes.get(i).root, skips[i]);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        while (!heads.isEmpty()) {
+            Cursor best = heads.poll();
+            if (!visitor.visit(best.source, best.node.transaction)) {
+                return;
+            }
+            if (best.advance()) {
+                heads.add(best);
+            }
+        }
+    }
+
+    // Parcours infixe d'une version de l'arbre, entrée par entrée
+    private static final class Cursor {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private Node next;
+        final int source;
+        Node node;
+
+        // Démarre à la position skip en O(log n) : la pile ne garde que les ancêtres placés après elle
+        Cursor(int source, Node root, int skip) {
+            this.source = source;
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (skip < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (skip == leftSize) {
+                    stack.push(node);
+                    node = null;
+                } else {
+                    skip -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        boolean advance() {
+            while (next != null) {
+                stack.push(next);
+                next = next.left;
+            }
+            if (stack.isEmpty()) {
+                return false;
+            }
+            node = stack.pop();
+            next = node.right;
+            return true;
+        }
+    }
+
+    private static void collect(Node node, int offset, int limit, List<Transaction> result) {
+        if (node == null || result.size() >= limit) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (offset < leftSize) {
+            collect(node.left, offset, limit, result);
+        }
+        if (result.size() >= limit) {
+            return;
+        }
+        if (offset <= leftSize) {
+            result.add(node.transaction);
+        }
+        collect(node.right, Math.max(0, offset - leftSize - 1), limit, result);
+    }
+
+    // Ordre de l'index : frais décroissants, puis id croissant pour départager
+    private static int compare(double fee, UUID id, Node node) {
+        return compare(fee, id, node.fee, node.id);
+    }
+
+    private static int compare(double fee, UUID id, double otherFee, UUID otherId) {
+        int cmp = Double.compare(otherFee, fee);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return id.compareTo(otherId);
+    }
+
+    private static Node build(double[] fees, Transaction[] transactions, int low, int high) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        return new Node(fees[mid], transactions[mid].getId(), transactions[mid],
+                build(fees, transactions, low, mid - 1), build(fees, transactions, mid + 1, high));
+    }
+
+    private static Node insert(Node node, double fee, UUID id, Transaction transaction) {
+        if (node == null) {
+            return new Node(fee, id, transaction, null, null);
+        }
+        int cmp = compare(fee, id, node);
+        if (cmp < 0) {
+            return balance(node, insert(node.left, fee, id, transaction), node.right);
+        } else if (cmp > 0) {
+            return balance(node, node.left, insert(node.right, fee, id, transaction));
+        }
+        return node;
+    }
+
+    private static Node remove(Node node, double fee, UUID id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(fee, id, node);
+        if (cmp < 0) {
+            Node left = remove(node.left, fee, id);
+            return left == node.left ? node : balance(node, left, node.right);
+        } else if (cmp > 0) {
+            Node right = remove(node.right, fee, id);
+            return right == node.right ? node : balance(node, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor, node.left, removeMin(node.right));
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node, removeMin(node.left), node.right);
+    }
+
+    // Construit un noeud avec la clé de base et les sous-arbres donnés, en rééquilibrant par rotations
+    private static Node balance(Node base, Node left, Node right) {
+        int balance = height(left) - height(right);
+        if (balance > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return copy(left, left.left, copy(base, left.right, right));
+            }
+            Node pivot = left.right;
+            return copy(pivot, copy(left, left.left, pivot.left), copy(base, pivot.right, right));
+        }
+        if (balance < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return copy(right, copy(base, left, right.left), right.right);
+            }
+            Node pivot = right.left;
+            return copy(pivot, copy(base, left, pivot.left), copy(right, pivot.right, right.right));
+        }
+        return copy(base, left, right);
+    }
+
+    private static Node copy(Node base, Node left, Node right) {
+        return new Node(base.fee, base.id, base.transaction, left, right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
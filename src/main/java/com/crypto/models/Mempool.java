@@ -1,54 +1,305 @@
 package main.java.com.crypto.models;
 
+import main.java.com.crypto.config.MempoolConfig;
+import main.java.com.crypto.enums.CryptoType;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
+// Un shard par CryptoType : les frais BTC et ETH ne sont jamais comparés entre eux pour les positions.
+// Chaque shard est réparti en bandes par wallet (MEMPOOL_STRIPES) : les écritures de wallets de bandes
+// différentes ne se bloquent pas. Les lectures fusionnent les bandes dans l'ordre global des scores.
+// Mémoire et plancher de frais restent communs à toutes les bandes d'un CryptoType (MempoolBudget) : la limite
+// est celle d'un shard unique et l'éviction retire le paquet de plus bas score, quelle que soit sa bande.
 public class Mempool {
-    private static Mempool instance;
-    private Map<UUID, Transaction> transactions;
+    private final Map<CryptoType, MempoolShard[]> shards;
+    private final Map<CryptoType, MempoolBudget> budgets;
+    private final int stripeMask;
+    private volatile Consumer<List<Transaction>> evictionListener;
 
     private Mempool() {
-        this.transactions = new HashMap<>();
+        this.shards = new EnumMap<>(CryptoType.class);
+        this.budgets = new EnumMap<>(CryptoType.class);
+        int stripes = MempoolConfig.STRIPES <= 1 ? 1 : Integer.highestOneBit(MempoolConfig.STRIPES - 1) << 1;
+        this.stripeMask = stripes - 1;
+        long shardMemory = MempoolConfig.MAX_MEMORY_BYTES / CryptoType.values().length;
+        for (CryptoType cryptoType : CryptoType.values()) {
+            MempoolBudget budget = new MempoolBudget(shardMemory);
+            MempoolShard[] stripesOfType = new MempoolShard[stripes];
+            for (int i = 0; i < stripes; i++) {
+                stripesOfType[i] = new MempoolShard(cryptoType, budget);
+            }
+            shards.put(cryptoType, stripesOfType);
+            budgets.put(cryptoType, budget);
+        }
+    }
+
+    // Initialisation paresseuse thread-safe sans synchronisation à chaque appel
+    private static class Holder {
+        private static final Mempool INSTANCE = new Mempool();
+    }
+
+    public static Mempool getInstance() {
+        return Holder.INSTANCE;
     }
 
-    public static synchronized Mempool getInstance() {
-        if (instance == null) {
-            instance = new Mempool();
+    // Renvoie false si les frais sont sous le plancher courant ou si la transaction a été évincée aussitôt.
+    // La bande est relâchée avant l'éviction, qui verrouille toutes les bandes du CryptoType.
+    public boolean addTransaction(Transaction transaction) {
+        if (!stripe(transaction).add(transaction)) {
+            return false;
         }
-        return instance;
+        return trimToSize(transaction);
+    }
+
+    // Remplace une transaction en attente par une version du même wallet payant plus de frais (RBF)
+    public boolean replaceTransaction(UUID originalId, Transaction replacement) {
+        if (!stripe(replacement).replace(originalId, replacement)) {
+            return false;
+        }
+        return trimToSize(replacement);
+    }
+
+    private boolean trimToSize(Transaction added) {
+        List<Transaction> evicted = new ArrayList<>();
+        boolean kept = MempoolShard.trimToSize(stripes(added.getCryptoType()), added.getId(), evicted);
+        notifyEvicted(evicted);
+        return kept;
     }
 
-    public void addTransaction(Transaction transaction) {
-        transactions.put(transaction.getId(), transaction);
+    // Nombre de transactions du wallet en attente dans le shard (longueur de sa chaîne)
+    public int getChainLength(CryptoType cryptoType, UUID walletId) {
+        return walletId == null ? 0 : stripe(cryptoType, walletId).getChainLength(walletId);
+    }
+
+    public int getMaxChainLength() {
+        return MempoolShard.MAX_ANCESTORS;
+    }
+
+    public int getStripeCount() {
+        return stripeMask + 1;
     }
 
     public void removeTransaction(UUID transactionId) {
-        transactions.remove(transactionId);
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                if (stripe.contains(transactionId) && stripe.remove(transactionId)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Sélectionne les meilleures transactions d'un shard dans la limite de capacité et les retire en une seule opération
+    public List<Transaction> removeTopTransactions(CryptoType cryptoType,
+                                                   ToLongFunction<Transaction> weigher, long capacity) {
+        return MempoolShard.removeTop(stripes(cryptoType), weigher, capacity);
+    }
+
+    // Retire de tous les shards les transactions dont la durée de vie est dépassée
+    public List<Transaction> expireTransactions(long nowMillis) {
+        List<Transaction> expired = new ArrayList<>();
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                expired.addAll(stripe.expire(nowMillis));
+            }
+        }
+        return expired;
     }
 
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions.values());
+        List<Transaction> result = new ArrayList<>(getTransactionCount());
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                stripe.collectTransactions(result);
+            }
+        }
+        return result;
     }
 
+    // Vue fusionnée de tous les shards par score de paquet décroissant (affichage uniquement)
     public List<Transaction> getSortedTransactions() {
-        return transactions.values().stream()
-                .sorted(Comparator.comparingDouble(Transaction::getFees).reversed())
-                .collect(Collectors.toList());
+        return snapshot().sorted();
+    }
+
+    public List<Transaction> getSortedTransactions(CryptoType cryptoType) {
+        return snapshot().topN(cryptoType, Integer.MAX_VALUE);
+    }
+
+    public List<Transaction> getTopTransactions(int count) {
+        return snapshot().topN(count);
+    }
+
+    // Instantané versionné de tous les shards, sans verrou ni copie des entrées
+    public MempoolSnapshot snapshot() {
+        Map<CryptoType, List<FeeIndex>> indexes = new EnumMap<>(CryptoType.class);
+        for (Map.Entry<CryptoType, MempoolShard[]> entry : shards.entrySet()) {
+            List<FeeIndex> stripeIndexes = new ArrayList<>(entry.getValue().length);
+            for (MempoolShard stripe : entry.getValue()) {
+                stripeIndexes.add(stripe.snapshot());
+            }
+            indexes.put(entry.getKey(), stripeIndexes);
+        }
+        return new MempoolSnapshot(indexes);
+    }
+
+    public List<Transaction> topN(int n) {
+        return getTopTransactions(n);
+    }
+
+    public List<Transaction> getTopTransactions(CryptoType cryptoType, int count) {
+        return snapshot().topN(cryptoType, count);
+    }
+
+    // Position (1-based) d'une transaction dans son shard, -1 si absente
+    public int getRank(UUID transactionId) {
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                int rank = stripe.rankOf(transactionId, stripes);
+                if (rank > 0) {
+                    return rank;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int countHigherFees(CryptoType cryptoType, double fee) {
+        int count = 0;
+        for (MempoolShard stripe : stripes(cryptoType)) {
+            count += stripe.countHigherThan(fee);
+        }
+        return count;
+    }
+
+    // Position qu'occuperait une nouvelle transaction pour chacun des frais donnés, sans toucher au mempool.
+    // Les transactions déjà présentes à frais égaux restent devant.
+    public int[] simulatePositions(CryptoType cryptoType, double... fees) {
+        MempoolShard[] stripes = stripes(cryptoType);
+        int[] positions = new int[fees.length];
+        for (int i = 0; i < fees.length; i++) {
+            int position = 1;
+            for (MempoolShard stripe : stripes) {
+                position += stripe.countAtLeast(fees[i]);
+            }
+            positions[i] = position;
+        }
+        return positions;
     }
 
     public int getTransactionCount() {
-        return transactions.size();
+        int count = 0;
+        for (CryptoType cryptoType : shards.keySet()) {
+            count += getTransactionCount(cryptoType);
+        }
+        return count;
+    }
+
+    public int getTransactionCount(CryptoType cryptoType) {
+        int count = 0;
+        for (MempoolShard stripe : stripes(cryptoType)) {
+            count += stripe.size();
+        }
+        return count;
     }
 
     public boolean containsTransaction(UUID transactionId) {
-        return transactions.containsKey(transactionId);
+        return getTransactionById(transactionId).isPresent();
     }
 
     public void clear() {
-        transactions.clear();
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                stripe.clear();
+            }
+        }
+    }
+
+    // Sauvegarde binaire du mempool (index compris); renvoie le nombre de transactions écrites
+    public int writeSnapshot(Path file) throws IOException {
+        return MempoolFile.write(file, shards);
+    }
+
+    // Remplace le contenu des shards présents dans le fichier; un shard dont la section est invalide reste vide
+    public int readSnapshot(Path file) throws IOException {
+        return MempoolFile.read(file, shards);
     }
 
     public Optional<Transaction> getTransactionById(UUID transactionId) {
-        return Optional.ofNullable(transactions.get(transactionId));
+        for (MempoolShard[] stripes : shards.values()) {
+            for (MempoolShard stripe : stripes) {
+                Transaction transaction = stripe.get(transactionId);
+                if (transaction != null) {
+                    return Optional.of(transaction);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public long getMemoryUsage() {
+        long usage = 0;
+        for (CryptoType cryptoType : shards.keySet()) {
+            usage += getMemoryUsage(cryptoType);
+        }
+        return usage;
+    }
+
+    public long getMemoryUsage(CryptoType cryptoType) {
+        return budget(cryptoType).getMemoryUsage();
+    }
+
+    public long getMaxMemory() {
+        long max = 0;
+        for (MempoolBudget budget : budgets.values()) {
+            max += budget.getMaxMemory();
+        }
+        return max;
+    }
+
+    public double getMinimumFee(CryptoType cryptoType) {
+        return budget(cryptoType).getMinimumFee();
+    }
+
+    // Appelé hors verrou avec les transactions évincées pour faire de la place
+    public void setEvictionListener(Consumer<List<Transaction>> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    private MempoolShard[] stripes(CryptoType cryptoType) {
+        if (cryptoType == null) {
+            throw new IllegalArgumentException("Type de crypto requis pour accéder au mempool");
+        }
+        return shards.get(cryptoType);
+    }
+
+    private MempoolBudget budget(CryptoType cryptoType) {
+        if (cryptoType == null) {
+            throw new IllegalArgumentException("Type de crypto requis pour accéder au mempool");
+        }
+        return budgets.get(cryptoType);
+    }
+
+    // Bande du wallet; une transaction sans wallet (sans chaîne) est répartie sur son propre id
+    private MempoolShard stripe(Transaction transaction) {
+        UUID key = transaction.getWalletId() != null ? transaction.getWalletId() : transaction.getId();
+        return stripe(transaction.getCryptoType(), key);
+    }
+
+    private MempoolShard stripe(CryptoType cryptoType, UUID key) {
+        MempoolShard[] stripes = stripes(cryptoType);
+        int hash = key.hashCode();
+        // Mélange des bits de poids fort : le masque ne garde que les bits de poids faible
+        hash ^= (hash >>> 16);
+        return stripes[hash & stripeMask];
+    }
+
+    private void notifyEvicted(List<Transaction> evicted) {
+        Consumer<List<Transaction>> listener = evictionListener;
+        if (listener != null && !evicted.isEmpty()) {
+            listener.accept(evicted);
+        }
     }
 }
@@ -0,0 +1,84 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.config.MempoolConfig;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mémoire et plancher de frais d'un CryptoType, partagés par toutes ses bandes : le shard garde une seule
+// limite et un seul plancher, comme un pool unique, même si ses écritures passent par plusieurs verrous.
+// La mémoire est comptée sans verrou; le plancher est protégé par le moniteur de l'objet.
+final class MempoolBudget {
+    private final long maxMemoryBytes;
+    private final AtomicLong memoryUsage = new AtomicLong();
+    private double rollingMinimumFee;
+    private long lastMinimumFeeUpdate;
+
+    MempoolBudget(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.lastMinimumFeeUpdate = System.currentTimeMillis();
+    }
+
+    long getMaxMemory() {
+        return maxMemoryBytes;
+    }
+
+    long getMemoryUsage() {
+        return memoryUsage.get();
+    }
+
+    boolean isOverLimit() {
+        return memoryUsage.get() > maxMemoryBytes;
+    }
+
+    void charge(long bytes) {
+        memoryUsage.addAndGet(bytes);
+    }
+
+    // Après une éviction : les frais sous le score évincé plus l'incrément sont refusés (comme maxmempool)
+    synchronized void raiseMinimumFee(double floor) {
+        if (floor > rollingMinimumFee) {
+            rollingMinimumFee = floor;
+        }
+        lastMinimumFeeUpdate = System.currentTimeMillis();
+    }
+
+    synchronized double getMinimumFee() {
+        return currentMinimumFee(System.currentTimeMillis());
+    }
+
+    // Valeurs brutes, sans décroissance, pour l'instantané du mempool
+    synchronized double getRollingMinimumFee() {
+        return rollingMinimumFee;
+    }
+
+    synchronized long getLastMinimumFeeUpdate() {
+        return lastMinimumFeeUpdate;
+    }
+
+    synchronized void restoreMinimumFee(double minimumFee, long minimumFeeUpdate) {
+        rollingMinimumFee = minimumFee;
+        lastMinimumFeeUpdate = minimumFeeUpdate;
+    }
+
+    // Le plancher décroît de moitié à chaque demi-vie, plus vite quand le mempool se vide
+    private double currentMinimumFee(long now) {
+        if (rollingMinimumFee == 0) {
+            return 0;
+        }
+        long halfLife = MempoolConfig.MIN_FEE_HALF_LIFE_MILLIS;
+        long usage = memoryUsage.get();
+        if (usage < maxMemoryBytes / 4) {
+            halfLife /= 4;
+        } else if (usage < maxMemoryBytes / 2) {
+            halfLife /= 2;
+        }
+        long elapsed = now - lastMinimumFeeUpdate;
+        if (elapsed > 0 && halfLife > 0) {
+            rollingMinimumFee /= Math.pow(2.0, (double) elapsed / halfLife);
+            lastMinimumFeeUpdate = now;
+            if (rollingMinimumFee < MempoolConfig.INCREMENTAL_FEE / 2) {
+                rollingMinimumFee = 0;
+            }
+        }
+        return rollingMinimumFee;
+    }
+}
@@ -0,0 +1,34 @@
+package main.java.com.crypto.models;
+
+// Entrée du mempool : la transaction avec les frais et la taille mémoire relevés à l'insertion.
+// Les transactions en attente d'un même wallet forment une chaîne (parent -> enfant) : un enfant
+// ne peut être confirmé qu'après ses ancêtres, et ses frais remontent la priorité de ceux-ci.
+class MempoolEntry {
+    final Transaction transaction;
+    final double fee;
+    final long sizeBytes;
+
+    MempoolEntry parent;
+    MempoolEntry child;
+    // Somme des frais et nombre de transactions de l'entrée et de ses ancêtres
+    double ancestorFees;
+    int ancestorCount;
+    // Clé dans l'index : meilleur score de paquet parmi l'entrée et ses descendants
+    volatile double score = Double.NaN;
+    // Rang de l'entrée dans la dernière section d'instantané écrite (référence du parent dans le fichier)
+    int snapshotOrdinal;
+
+    MempoolEntry(Transaction transaction, long sizeBytes) {
+        this.transaction = transaction;
+        this.fee = transaction.getFees();
+        this.sizeBytes = sizeBytes;
+    }
+
+    double getAncestorScore() {
+        return ancestorFees / ancestorCount;
+    }
+
+    boolean isIndexed() {
+        return !Double.isNaN(score);
+    }
+}
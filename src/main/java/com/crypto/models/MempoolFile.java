@@ -0,0 +1,255 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Format binaire de l'instantané du mempool, lu et écrit par projection mémoire.
+// En-tête : magic, version du format, nombre de sections, date d'écriture.
+// Une section par bande de shard, dans l'ordre des bandes : type, nombre d'entrées, taille et CRC32 des
+// données, plancher de frais, puis les entrées dans l'ordre de l'index (score décroissant) pour reconstruire
+// l'arbre en O(n). Un instantané écrit avec un autre nombre de bandes est refusé (rechargement depuis la base).
+final class MempoolFile {
+    private static final int MAGIC = 0x4D504F4F; // "MPOO"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    static final int SECTION_HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 8;
+    // id, rang du parent, wallet (avec son indicateur), frais, montant, score, date, niveau de frais, longueurs d'adresses
+    private static final int RECORD_FIXED_BYTES = 16 + 4 + 1 + 16 + 8 + 8 + 8 + 8 + 4 + 1 + 2 + 2;
+
+    private MempoolFile() {
+    }
+
+    // Écrit dans un fichier temporaire puis le renomme : un instantané existant n'est jamais laissé à moitié écrit
+    static int write(Path file, Map<CryptoType, MempoolShard[]> shards) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int total = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_BYTES;
+            int sections = 0;
+            for (MempoolShard[] stripes : shards.values()) {
+                for (MempoolShard stripe : stripes) {
+                    position += stripe.exportTo(channel, position);
+                    total += stripe.size();
+                    sections++;
+                }
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(sections);
+            header.putLong(System.currentTimeMillis());
+            header.force();
+            channel.truncate(position);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return total;
+    }
+
+    static int read(Path file, Map<CryptoType, MempoolShard[]> shards) throws IOException {
+        int total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Instantané du mempool tronqué");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Format d'instantané du mempool inconnu");
+            }
+            int sections = header.getInt();
+            checkStripes(channel, sections, shards);
+
+            int[] nextStripe = new int[CryptoType.values().length];
+            long position = HEADER_BYTES;
+            for (int s = 0; s < sections; s++) {
+                if (position + SECTION_HEADER_BYTES > fileSize) {
+                    throw new IOException("Instantané du mempool tronqué");
+                }
+                MappedByteBuffer sectionHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, SECTION_HEADER_BYTES);
+                int typeOrdinal = sectionHeader.getInt();
+                int count = sectionHeader.getInt();
+                long payloadBytes = sectionHeader.getLong();
+                long crc = sectionHeader.getLong();
+                double minimumFee = sectionHeader.getDouble();
+                long minimumFeeUpdate = sectionHeader.getLong();
+
+                if (typeOrdinal < 0 || typeOrdinal >= CryptoType.values().length || count < 0
+                        || payloadBytes < 0 || payloadBytes > Integer.MAX_VALUE
+                        || position + SECTION_HEADER_BYTES + payloadBytes > fileSize) {
+                    throw new IOException("Section d'instantané du mempool invalide");
+                }
+                MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + SECTION_HEADER_BYTES, payloadBytes);
+                if (checksum(payload) != crc) {
+                    throw new IOException("Somme de contrôle de l'instantané du mempool invalide");
+                }
+                MempoolShard stripe = shards.get(CryptoType.values()[typeOrdinal])[nextStripe[typeOrdinal]++];
+                stripe.importFrom(payload, count, minimumFee, minimumFeeUpdate);
+                total += count;
+                position += SECTION_HEADER_BYTES + payloadBytes;
+            }
+        }
+        return total;
+    }
+
+    // Une entrée doit retrouver la bande de son wallet : chaque shard présent doit avoir autant de sections
+    // que de bandes. Vérifié sur les seuls en-têtes, avant de toucher au mempool.
+    private static void checkStripes(FileChannel channel, int sections, Map<CryptoType, MempoolShard[]> shards)
+            throws IOException {
+        long fileSize = channel.size();
+        int[] counts = new int[CryptoType.values().length];
+        long position = HEADER_BYTES;
+        for (int s = 0; s < sections; s++) {
+            if (position + SECTION_HEADER_BYTES > fileSize) {
+                throw new IOException("Instantané du mempool tronqué");
+            }
+            MappedByteBuffer sectionHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, SECTION_HEADER_BYTES);
+            int typeOrdinal = sectionHeader.getInt();
+            sectionHeader.getInt();
+            long payloadBytes = sectionHeader.getLong();
+            if (typeOrdinal < 0 || typeOrdinal >= counts.length || payloadBytes < 0) {
+                throw new IOException("Section d'instantané du mempool invalide");
+            }
+            counts[typeOrdinal]++;
+            position += SECTION_HEADER_BYTES + payloadBytes;
+        }
+        for (CryptoType cryptoType : CryptoType.values()) {
+            int count = counts[cryptoType.ordinal()];
+            if (count != 0 && count != shards.get(cryptoType).length) {
+                throw new IOException("Instantané du mempool écrit avec " + count + " bandes pour " + cryptoType
+                        + " au lieu de " + shards.get(cryptoType).length);
+            }
+        }
+    }
+
+    static void writeSectionHeader(ByteBuffer section, CryptoType cryptoType, int count,
+                                   double minimumFee, long minimumFeeUpdate) {
+        int payloadBytes = section.position() - SECTION_HEADER_BYTES;
+        ByteBuffer payload = section.duplicate();
+        payload.position(SECTION_HEADER_BYTES);
+        payload.limit(SECTION_HEADER_BYTES + payloadBytes);
+
+        section.putInt(0, cryptoType.ordinal());
+        section.putInt(4, count);
+        section.putLong(8, payloadBytes);
+        section.putLong(16, checksum(payload));
+        section.putDouble(24, minimumFee);
+        section.putLong(32, minimumFeeUpdate);
+    }
+
+    // Taille maximale d'un enregistrement (UTF-8 : 3 octets au plus par caractère)
+    static long recordBound(Transaction transaction) {
+        return RECORD_FIXED_BYTES + stringBound(transaction.getSourceAddress())
+                + stringBound(transaction.getDestinationAddress());
+    }
+
+    // parentOrdinal : rang du parent dans la section, -1 pour une tête de chaîne
+    static void writeRecord(ByteBuffer out, Transaction transaction, double score, int parentOrdinal) {
+        putUuid(out, transaction.getId());
+        out.putInt(parentOrdinal);
+        putOptionalUuid(out, transaction.getWalletId());
+        out.putDouble(transaction.getFees());
+        out.putDouble(transaction.getAmount());
+        out.putDouble(score);
+        LocalDateTime creationDate = transaction.getCreationDate();
+        out.putLong(creationDate == null ? Long.MIN_VALUE : creationDate.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(creationDate == null ? 0 : creationDate.getNano());
+        out.put((byte) (transaction.getFeeLevel() == null ? -1 : transaction.getFeeLevel().ordinal()));
+        putString(out, transaction.getSourceAddress());
+        putString(out, transaction.getDestinationAddress());
+    }
+
+    // Lit un enregistrement; le score et le rang du parent sont rangés à l'indice donné
+    static Transaction readRecord(ByteBuffer in, CryptoType cryptoType, int index, double[] scores, int[] parents) {
+        Transaction transaction = new Transaction(getUuid(in));
+        parents[index] = in.getInt();
+        transaction.setWalletId(getOptionalUuid(in));
+        transaction.setFees(in.getDouble());
+        transaction.setAmount(in.getDouble());
+        scores[index] = in.getDouble();
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        if (epochSecond != Long.MIN_VALUE) {
+            transaction.setCreationDate(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+        }
+        byte feeLevel = in.get();
+        transaction.setFeeLevel(feeLevel < 0 ? null : FeeLevel.values()[feeLevel]);
+        transaction.setSourceAddress(getString(in));
+        transaction.setDestinationAddress(getString(in));
+        transaction.setCryptoType(cryptoType);
+        return transaction;
+    }
+
+    private static long checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return crc.getValue();
+    }
+
+    private static long stringBound(String value) {
+        return value == null ? 0 : 3L * value.length();
+    }
+
+    private static void putUuid(ByteBuffer out, UUID id) {
+        out.putLong(id.getMostSignificantBits());
+        out.putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static void putOptionalUuid(ByteBuffer out, UUID id) {
+        out.put((byte) (id == null ? 0 : 1));
+        if (id == null) {
+            out.putLong(0).putLong(0);
+        } else {
+            putUuid(out, id);
+        }
+    }
+
+    private static UUID getOptionalUuid(ByteBuffer in) {
+        boolean present = in.get() != 0;
+        UUID id = getUuid(in);
+        return present ? id : null;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,598 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.config.MempoolConfig;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.utils.TimingWheel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+// Bande du mempool : les wallets d'un seul CryptoType dont l'id tombe sur cette bande, avec leur ordre des
+// frais et leur verrou propres. Une chaîne de wallet reste dans une seule bande. La limite de mémoire et le
+// plancher de frais sont communs à toutes les bandes du CryptoType (MempoolBudget).
+class MempoolShard {
+    private final CryptoType cryptoType;
+    private final Map<UUID, MempoolEntry> transactions;
+    // Version publiée de l'index persistant : les lecteurs la lisent sans verrou
+    private volatile FeeIndex feeIndex;
+    // Version en cours de modification, publiée en une fois à la fin de chaque écriture
+    private FeeIndex workingIndex;
+    // Dernière transaction en attente de chaque wallet (fin de chaîne)
+    private final Map<UUID, MempoolEntry> chainTails;
+    // Échéances d'expiration des entrées, annulées à chaque retrait
+    private final TimingWheel<UUID> expiryWheel;
+    // Sérialise les écritures; les lectures passent par l'index publié ou la ConcurrentHashMap
+    private final ReentrantLock lock;
+
+    private final MempoolBudget budget;
+    // Part de cette bande dans la mémoire comptée par le budget commun
+    private long memoryUsage;
+
+    private static final int MAX_CONSECUTIVE_MISSES = 1000;
+    // Longueur maximale d'une chaîne de transactions en attente (limite d'ancêtres de Bitcoin Core)
+    static final int MAX_ANCESTORS = 25;
+
+    MempoolShard(CryptoType cryptoType, MempoolBudget budget) {
+        this.cryptoType = cryptoType;
+        this.transactions = new ConcurrentHashMap<>();
+        this.feeIndex = FeeIndex.empty();
+        this.workingIndex = feeIndex;
+        this.chainTails = new HashMap<>();
+        this.expiryWheel = new TimingWheel<>(MempoolConfig.EXPIRY_TICK_MILLIS, MempoolConfig.EXPIRY_WHEEL_SIZE,
+                System.currentTimeMillis());
+        this.lock = new ReentrantLock();
+        this.budget = budget;
+    }
+
+    CryptoType getCryptoType() {
+        return cryptoType;
+    }
+
+    // Renvoie false si les frais sont sous le plancher ou si la chaîne du wallet est pleine; un refus laisse
+    // la bande intacte. La limite de mémoire est appliquée ensuite par trimToSize, sur toutes les bandes.
+    boolean add(Transaction transaction) {
+        lock.lock();
+        try {
+            if (transaction.getFees() < budget.getMinimumFee()) {
+                return false;
+            }
+
+            // Longueur de la chaîne une fois retirée une éventuelle version déjà présente de la transaction
+            UUID walletId = transaction.getWalletId();
+            MempoolEntry existing = transactions.get(transaction.getId());
+            MempoolEntry tail = walletId == null ? null : chainTails.get(walletId);
+            int chainLength = tail == null ? 0 : tail.ancestorCount;
+            if (existing != null && walletId != null && walletId.equals(existing.transaction.getWalletId())) {
+                chainLength--;
+            }
+            if (chainLength >= MAX_ANCESTORS) {
+                return false;
+            }
+
+            removeEntry(transaction.getId());
+            MempoolEntry parent = walletId == null ? null : chainTails.get(walletId);
+
+            MempoolEntry entry = new MempoolEntry(transaction, estimateMemoryUsage(transaction));
+            if (parent != null) {
+                entry.parent = parent;
+                parent.child = entry;
+            }
+            if (walletId != null) {
+                chainTails.put(walletId, entry);
+            }
+            transactions.put(transaction.getId(), entry);
+            charge(entry.sizeBytes);
+            expiryWheel.schedule(transaction.getId(), expiresAt(transaction));
+            refreshChain(entry);
+            return true;
+        } finally {
+            publish();
+            lock.unlock();
+        }
+    }
+
+    // Remplacement par des frais plus élevés (RBF) : la remplaçante prend la place de l'originale dans la
+    // chaîne du wallet et doit payer au moins les frais de l'originale plus l'incrément du mempool, et au
+    // moins le plancher courant
+    boolean replace(UUID originalId, Transaction replacement) {
+        lock.lock();
+        try {
+            MempoolEntry original = transactions.get(originalId);
+            if (original == null || replacement.getWalletId() == null
+                    || !replacement.getWalletId().equals(original.transaction.getWalletId())
+                    || replacement.getFees() < original.fee + MempoolConfig.INCREMENTAL_FEE
+                    || replacement.getFees() < budget.getMinimumFee()
+                    || transactions.containsKey(replacement.getId())) {
+                return false;
+            }
+
+            MempoolEntry entry = new MempoolEntry(replacement, estimateMemoryUsage(replacement));
+            entry.parent = original.parent;
+            entry.child = original.child;
+            if (entry.parent != null) {
+                entry.parent.child = entry;
+            }
+            if (entry.child != null) {
+                entry.child.parent = entry;
+            } else {
+                chainTails.put(replacement.getWalletId(), entry);
+            }
+
+            transactions.remove(originalId);
+            workingIndex = workingIndex.remove(original.score, originalId);
+            charge(-original.sizeBytes);
+            expiryWheel.cancel(originalId);
+            transactions.put(replacement.getId(), entry);
+            charge(entry.sizeBytes);
+            expiryWheel.schedule(replacement.getId(), expiresAt(replacement));
+            refreshChain(entry);
+            return true;
+        } finally {
+            publish();
+            lock.unlock();
+        }
+    }
+
+    int getChainLength(UUID walletId) {
+        lock.lock();
+        try {
+            MempoolEntry tail = chainTails.get(walletId);
+            return tail == null ? 0 : tail.ancestorCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean remove(UUID transactionId) {
+        lock.lock();
+        try {
+            return removeEntry(transactionId) != null;
+        } finally {
+            publish();
+            lock.unlock();
+        }
+    }
+
+    // Sélection par score de paquet décroissant sur toutes les bandes d'un même CryptoType : une transaction
+    // n'entre dans le bloc qu'avec ses ancêtres, tous dans sa bande (même wallet). Les bandes sont verrouillées
+    // dans l'ordre du tableau, seule opération à en tenir plusieurs : l'ordre global des scores est respecté.
+    static List<Transaction> removeTop(MempoolShard[] stripes, ToLongFunction<Transaction> weigher, long capacity) {
+        List<Transaction> selected = new ArrayList<>();
+        List<MempoolShard> owners = new ArrayList<>();
+        for (MempoolShard stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            List<FeeIndex> indexes = new ArrayList<>(stripes.length);
+            for (MempoolShard stripe : stripes) {
+                indexes.add(stripe.workingIndex);
+            }
+            Set<UUID> selectedIds = new HashSet<>();
+            Deque<MempoolEntry> pkg = new ArrayDeque<>();
+            long[] remaining = {capacity};
+            int[] misses = {0};
+            FeeIndex.forEachDescending(indexes, (source, tx) -> {
+                if (selectedIds.contains(tx.getId())) {
+                    return true;
+                }
+                pkg.clear();
+                long weight = 0;
+                MempoolEntry ancestor = stripes[source].transactions.get(tx.getId());
+                while (ancestor != null && !selectedIds.contains(ancestor.transaction.getId())) {
+                    pkg.push(ancestor);
+                    weight += weigher.applyAsLong(ancestor.transaction);
+                    ancestor = ancestor.parent;
+                }
+                if (weight <= remaining[0]) {
+                    for (MempoolEntry e : pkg) {
+                        selected.add(e.transaction);
+                        owners.add(stripes[source]);
+                        selectedIds.add(e.transaction.getId());
+                    }
+                    remaining[0] -= weight;
+                    misses[0] = 0;
+                } else {
+                    misses[0]++;
+                }
+                return remaining[0] > 0 && misses[0] < MAX_CONSECUTIVE_MISSES;
+            });
+
+            for (int i = 0; i < selected.size(); i++) {
+                owners.get(i).removeEntry(selected.get(i).getId());
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].publish();
+                stripes[i].lock.unlock();
+            }
+        }
+        return selected;
+    }
+
+    // Retire les transactions arrivées à expiration avec leurs descendants (qui ne pourraient plus être minés)
+    List<Transaction> expire(long nowMillis) {
+        List<Transaction> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            List<UUID> due = new ArrayList<>();
+            expiryWheel.advance(nowMillis, due);
+            for (UUID id : due) {
+                MempoolEntry entry = transactions.get(id);
+                if (entry == null) {
+                    continue;
+                }
+                MempoolEntry tail = entry;
+                while (tail.child != null) {
+                    tail = tail.child;
+                }
+                MempoolEntry stop = entry.parent;
+                for (MempoolEntry e = tail; e != stop; ) {
+                    MempoolEntry next = e.parent;
+                    removeEntry(e.transaction.getId());
+                    expired.add(e.transaction);
+                    e = next;
+                }
+            }
+        } finally {
+            publish();
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    // Écrit la section du shard à partir de position (entrées dans l'ordre de l'index) et renvoie sa taille.
+    // Le verrou est tenu pendant l'écriture pour que les chaînes soient cohérentes avec l'index.
+    long exportTo(FileChannel channel, long position) throws IOException {
+        lock.lock();
+        try {
+            long bound = MempoolFile.SECTION_HEADER_BYTES;
+            for (MempoolEntry e : transactions.values()) {
+                bound += MempoolFile.recordBound(e.transaction);
+            }
+            if (bound > Integer.MAX_VALUE) {
+                throw new IOException("Shard " + cryptoType + " trop volumineux pour un instantané");
+            }
+            // Les parents sont référencés par leur rang dans la section : pas de table de hachage à la relecture
+            List<MempoolEntry> ordered = new ArrayList<>(workingIndex.size());
+            workingIndex.forEachDescending(tx -> {
+                MempoolEntry e = transactions.get(tx.getId());
+                e.snapshotOrdinal = ordered.size();
+                ordered.add(e);
+                return true;
+            });
+            MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_WRITE, position, bound);
+            section.position(MempoolFile.SECTION_HEADER_BYTES);
+            for (MempoolEntry e : ordered) {
+                MempoolFile.writeRecord(section, e.transaction, e.score, e.parent == null ? -1 : e.parent.snapshotOrdinal);
+            }
+            MempoolFile.writeSectionHeader(section, cryptoType, workingIndex.size(),
+                    budget.getRollingMinimumFee(), budget.getLastMinimumFeeUpdate());
+            section.force();
+            return section.position();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remplace le contenu du shard par une section d'instantané : chaînes relinkées et index reconstruit
+    // en O(n) à partir de l'ordre enregistré, sans réinsertion une à une
+    void importFrom(ByteBuffer payload, int count, double minimumFee, long minimumFeeUpdate) throws IOException {
+        lock.lock();
+        try {
+            resetState();
+            double[] scores = new double[count];
+            int[] parents = new int[count];
+            Transaction[] loaded = new Transaction[count];
+            MempoolEntry[] entries = new MempoolEntry[count];
+            for (int i = 0; i < count; i++) {
+                loaded[i] = MempoolFile.readRecord(payload, cryptoType, i, scores, parents);
+                entries[i] = new MempoolEntry(loaded[i], estimateMemoryUsage(loaded[i]));
+                entries[i].score = scores[i];
+                transactions.put(loaded[i].getId(), entries[i]);
+                charge(entries[i].sizeBytes);
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (parents[i] >= 0) {
+                    MempoolEntry parent = parents[i] < count ? entries[parents[i]] : null;
+                    if (parent == null || parent.child != null || parent == entries[i]) {
+                        throw new IOException("Chaîne de transactions invalide dans l'instantané");
+                    }
+                    entries[i].parent = parent;
+                    parent.child = entries[i];
+                }
+            }
+            for (MempoolEntry entry : entries) {
+                if (entry.parent == null) {
+                    double fees = 0;
+                    int depth = 0;
+                    for (MempoolEntry e = entry; e != null; e = e.child) {
+                        fees += e.fee;
+                        e.ancestorFees = fees;
+                        e.ancestorCount = ++depth;
+                        if (e.child == null && e.transaction.getWalletId() != null) {
+                            chainTails.put(e.transaction.getWalletId(), e);
+                        }
+                    }
+                }
+                expiryWheel.schedule(entry.transaction.getId(), expiresAt(entry.transaction));
+            }
+
+            FeeIndex index = workingIndex.replaceAll(scores, loaded, count);
+            if (index == null) {
+                throw new IOException("Ordre de l'index invalide dans l'instantané");
+            }
+            workingIndex = index;
+            // Plancher commun : toutes les sections d'un même CryptoType portent la même valeur
+            budget.restoreMinimumFee(minimumFee, minimumFeeUpdate);
+        } catch (IOException | RuntimeException e) {
+            resetState();
+            throw e;
+        } finally {
+            publish();
+            lock.unlock();
+        }
+    }
+
+    // Instantané immuable de l'ordre du shard, obtenu sans verrou ni copie
+    FeeIndex snapshot() {
+        return feeIndex;
+    }
+
+    void collectTransactions(List<Transaction> result) {
+        result.addAll(feeIndex.toList());
+    }
+
+    // Position (1-based) parmi toutes les bandes du CryptoType : rang dans cette bande plus, dans chacune des
+    // autres, le nombre d'entrées placées avant. Chaque bande est lue sur sa version publiée, sans verrou.
+    int rankOf(UUID transactionId, MempoolShard[] stripes) {
+        MempoolEntry entry = transactions.get(transactionId);
+        if (entry == null) {
+            return -1;
+        }
+        double score = entry.score;
+        int rank = feeIndex.rankOf(score, transactionId);
+        if (rank <= 0) {
+            // Score modifié par une écriture concurrente : relecture cohérente sous verrou
+            lock.lock();
+            try {
+                MempoolEntry current = transactions.get(transactionId);
+                if (current == null) {
+                    return -1;
+                }
+                score = current.score;
+                rank = feeIndex.rankOf(score, transactionId);
+            } finally {
+                lock.unlock();
+            }
+            if (rank <= 0) {
+                return -1;
+            }
+        }
+        for (MempoolShard other : stripes) {
+            if (other != this) {
+                rank += other.feeIndex.countBefore(score, transactionId);
+            }
+        }
+        return rank;
+    }
+
+    int countHigherThan(double fee) {
+        return feeIndex.countHigherThan(fee);
+    }
+
+    int countAtLeast(double fee) {
+        return feeIndex.countAtLeast(fee);
+    }
+
+    int size() {
+        return transactions.size();
+    }
+
+    boolean contains(UUID transactionId) {
+        return transactions.containsKey(transactionId);
+    }
+
+    Transaction get(UUID transactionId) {
+        MempoolEntry entry = transactions.get(transactionId);
+        return entry == null ? null : entry.transaction;
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            resetState();
+        } finally {
+            publish();
+            lock.unlock();
+        }
+    }
+
+    private void publish() {
+        feeIndex = workingIndex;
+    }
+
+    private void resetState() {
+        transactions.clear();
+        workingIndex = workingIndex.clear();
+        chainTails.clear();
+        expiryWheel.clear();
+        charge(-memoryUsage);
+    }
+
+    private void charge(long bytes) {
+        memoryUsage += bytes;
+        budget.charge(bytes);
+    }
+
+    private static long expiresAt(Transaction transaction) {
+        LocalDateTime creationDate = transaction.getCreationDate();
+        long created = creationDate == null ? System.currentTimeMillis()
+                : creationDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return created + MempoolConfig.getExpiryMillis(transaction.getFeeLevel());
+    }
+
+    // Retire l'entrée de l'index et de la chaîne de son wallet, puis recalcule les scores de la chaîne restante
+
+    private MempoolEntry removeEntry(UUID transactionId) {
+        MempoolEntry removed = transactions.remove(transactionId);
+        if (removed == null) {
+            return null;
+        }
+        workingIndex = workingIndex.remove(removed.score, transactionId);
+        charge(-removed.sizeBytes);
+        expiryWheel.cancel(transactionId);
+
+        MempoolEntry parent = removed.parent;
+        MempoolEntry child = removed.child;
+        if (parent != null) {
+            parent.child = child;
+        }
+        if (child != null) {
+            child.parent = parent;
+        } else {
+            UUID walletId = removed.transaction.getWalletId();
+            if (walletId != null) {
+                if (parent != null) {
+                    chainTails.put(walletId, parent);
+                } else {
+                    chainTails.remove(walletId);
+                }
+            }
+        }
+        removed.parent = null;
+        removed.child = null;
+
+        if (parent != null) {
+            refreshChain(parent);
+        } else if (child != null) {
+            refreshChain(child);
+        }
+        return removed;
+    }
+
+    // Recalcule les agrégats d'ancêtres puis le score de paquet de chaque entrée de la chaîne.
+    // Le score d'un parent est le meilleur score parmi lui et ses descendants (CPFP).
+    // La chaîne est bornée par MAX_ANCESTORS, donc la mise à jour reste en O(log n).
+    private void refreshChain(MempoolEntry member) {
+        MempoolEntry head = member;
+        while (head.parent != null) {
+            head = head.parent;
+        }
+
+        MempoolEntry tail = head;
+        double fees = 0;
+        int count = 0;
+        for (MempoolEntry e = head; e != null; e = e.child) {
+            fees += e.fee;
+            count++;
+            e.ancestorFees = fees;
+            e.ancestorCount = count;
+            tail = e;
+        }
+
+        double best = Double.NEGATIVE_INFINITY;
+        for (MempoolEntry e = tail; e != null; e = e.parent) {
+            best = Math.max(best, e.getAncestorScore());
+            if (!e.isIndexed() || e.score != best) {
+                if (e.isIndexed()) {
+                    workingIndex = workingIndex.remove(e.score, e.transaction.getId());
+                }
+                e.score = best;
+                workingIndex = workingIndex.insert(best, e.transaction);
+            }
+        }
+    }
+
+    // Évince le paquet de plus bas score parmi toutes les bandes du CryptoType (avec ses descendants) jusqu'à
+    // repasser sous la limite commune, et remonte le plancher commun (comme maxmempool). Les bandes sont
+    // verrouillées dans l'ordre du tableau, comme pour removeTop; rien n'est verrouillé sous la limite.
+    // Renvoie false si la transaction ajoutée a été évincée.
+    static boolean trimToSize(MempoolShard[] stripes, UUID addedId, List<Transaction> evicted) {
+        MempoolBudget budget = stripes[0].budget;
+        if (!budget.isOverLimit()) {
+            return true;
+        }
+        boolean kept = true;
+        for (MempoolShard stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            while (budget.isOverLimit()) {
+                MempoolShard owner = null;
+                MempoolEntry lowest = null;
+                for (MempoolShard stripe : stripes) {
+                    Transaction last = stripe.workingIndex.last();
+                    if (last == null) {
+                        continue;
+                    }
+                    MempoolEntry candidate = stripe.transactions.get(last.getId());
+                    // Dernier dans l'ordre de l'index fusionné : score le plus bas, puis id le plus grand
+                    if (lowest == null || candidate.score < lowest.score || (candidate.score == lowest.score
+                            && candidate.transaction.getId().compareTo(lowest.transaction.getId()) > 0)) {
+                        owner = stripe;
+                        lowest = candidate;
+                    }
+                }
+                if (lowest == null) {
+                    break;
+                }
+                double floor = lowest.score + MempoolConfig.INCREMENTAL_FEE;
+
+                MempoolEntry stop = lowest.parent;
+                MempoolEntry tail = lowest;
+                while (tail.child != null) {
+                    tail = tail.child;
+                }
+                for (MempoolEntry e = tail; e != stop; ) {
+                    MempoolEntry next = e.parent;
+                    owner.removeEntry(e.transaction.getId());
+                    evicted.add(e.transaction);
+                    if (e.transaction.getId().equals(addedId)) {
+                        kept = false;
+                    }
+                    e = next;
+                }
+                budget.raiseMinimumFee(floor);
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].publish();
+                stripes[i].lock.unlock();
+            }
+        }
+        return kept;
+    }
+
+    // Estimation de l'empreinte mémoire d'une entrée (JVM 64 bits, références compressées)
+    static long estimateMemoryUsage(Transaction transaction) {
+        long size = 64;                               // objet Transaction
+        size += 2 * 32;                               // UUID id et walletId
+        size += 72;                                   // LocalDateTime (LocalDate + LocalTime)
+        size += stringSize(transaction.getSourceAddress());
+        size += stringSize(transaction.getDestinationAddress());
+        size += 32 + 8;                               // noeud de la ConcurrentHashMap et case de table
+        size += 48;                                   // MempoolEntry
+        size += 40;                                   // noeud de l'index des frais
+        size += 40 + 32;                              // timer d'expiration et son entrée de HashMap
+        return size;
+    }
+
+    private static long stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return 24 + align(16 + value.length());
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,82 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.enums.CryptoType;
+import java.util.*;
+
+// Instantané immuable du mempool : une version de l'index de chaque bande de chaque shard.
+// Peut être conservé et parcouru page par page sans copie et sans bloquer les écritures.
+public class MempoolSnapshot {
+    private final Map<CryptoType, List<FeeIndex>> indexes;
+
+    MempoolSnapshot(Map<CryptoType, List<FeeIndex>> indexes) {
+        this.indexes = indexes;
+    }
+
+    // Change à chaque écriture dans l'une des bandes du shard
+    public long getVersion(CryptoType cryptoType) {
+        long version = 0;
+        for (FeeIndex index : indexes(cryptoType)) {
+            version += index.getVersion();
+        }
+        return version;
+    }
+
+    public int size() {
+        int size = 0;
+        for (CryptoType cryptoType : indexes.keySet()) {
+            size += size(cryptoType);
+        }
+        return size;
+    }
+
+    public int size(CryptoType cryptoType) {
+        int size = 0;
+        for (FeeIndex index : indexes(cryptoType)) {
+            size += index.size();
+        }
+        return size;
+    }
+
+    // Les n meilleures transactions tous shards confondus, dans l'ordre des index (score du paquet), alloue O(n)
+    public List<Transaction> topN(int n) {
+        List<FeeIndex> all = new ArrayList<>();
+        for (List<FeeIndex> stripes : indexes.values()) {
+            all.addAll(stripes);
+        }
+        return FeeIndex.merge(all, n);
+    }
+
+    public List<Transaction> sorted() {
+        return topN(Integer.MAX_VALUE);
+    }
+
+    public List<Transaction> topN(CryptoType cryptoType, int n) {
+        List<FeeIndex> stripes = indexes(cryptoType);
+        return stripes.size() == 1 ? stripes.get(0).top(n) : FeeIndex.merge(stripes, n);
+    }
+
+    // O(log n + limit) avec une seule bande; avec plusieurs, le départ de la page est trouvé par les rangs de
+    // chaque bande, sans parcourir les offset premières entrées
+    public List<Transaction> page(CryptoType cryptoType, int offset, int limit) {
+        List<FeeIndex> stripes = indexes(cryptoType);
+        if (stripes.size() == 1) {
+            return stripes.get(0).page(offset, limit);
+        }
+        return FeeIndex.mergePage(stripes, offset, limit);
+    }
+
+    public int countHigherThan(CryptoType cryptoType, double fee) {
+        int count = 0;
+        for (FeeIndex index : indexes(cryptoType)) {
+            count += index.countHigherThan(fee);
+        }
+        return count;
+    }
+
+    private List<FeeIndex> indexes(CryptoType cryptoType) {
+        if (cryptoType == null) {
+            throw new IllegalArgumentException("Type de crypto requis pour accéder au mempool");
+        }
+        return indexes.get(cryptoType);
+    }
+}
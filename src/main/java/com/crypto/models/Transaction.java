@@ -24,6 +24,12 @@ public class Transaction {
         this.status = TransactionStatus.PENDING;
     }
 
+    // Relecture d'une transaction existante : pas d'UUID aléatoire ni de date courante à générer
+    public Transaction(UUID id) {
+        this.id = id;
+        this.status = TransactionStatus.PENDING;
+    }
+
     // Getters et setters
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
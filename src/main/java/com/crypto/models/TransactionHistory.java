@@ -0,0 +1,270 @@
+package main.java.com.crypto.models;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Historique d'un wallet, de la transaction la plus récente à la plus ancienne, chargé page par page à la
+// demande : seules les transactions parcourues sont gardées en mémoire. Index par id pour les tests
+// d'appartenance en O(1) parmi les transactions chargées ou ajoutées, puis lecture par id à la source tant que
+// l'historique n'est pas entièrement lu. Non thread-safe, comme Wallet.
+public class TransactionHistory implements Iterable<Transaction> {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Ordre du type uuid de PostgreSQL : les 16 octets comparés sans signe, alors que UUID.compareTo compare
+    // deux long signés (les deux ordres divergent dès que le premier bit d'une moitié est à 1)
+    public static final Comparator<UUID> UUID_ORDER = (a, b) -> {
+        int order = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return order != 0 ? order : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    // Même ordre que findPageByWalletId : creation_date DESC, id DESC
+    public static final Comparator<Transaction> NEWEST_FIRST = Comparator.comparing(Transaction::getCreationDate)
+            .thenComparing(Transaction::getId, UUID_ORDER).reversed();
+
+    // Page suivante strictement après (beforeDate, beforeId), null pour la première page
+    public interface PageLoader {
+        List<Transaction> loadPage(LocalDateTime beforeDate, UUID beforeId, int limit);
+    }
+
+    private final PageLoader pageLoader;
+    // Lecture d'une transaction du wallet par id, vide si elle n'existe pas à la source
+    private final Function<UUID, Optional<Transaction>> idLoader;
+    private final IntSupplier countLoader;
+    private final int pageSize;
+
+    private final Map<UUID, Transaction> byId = new HashMap<>();
+    // Transactions lues par id à la source, pas encore atteintes par les pages
+    private final Map<UUID, Transaction> fetched = new HashMap<>();
+    // Préfixe de l'historique déjà lu en base, dans l'ordre des pages
+    private final List<Transaction> loaded = new ArrayList<>();
+    // Transactions ajoutées localement et absentes des pages lues, triées comme NEWEST_FIRST
+    private final List<Transaction> added = new ArrayList<>();
+    private Transaction cursor;
+    private boolean exhausted;
+    // -1 tant que le nombre total n'a pas été demandé
+    private int count = -1;
+
+    public TransactionHistory(PageLoader pageLoader, Function<UUID, Optional<Transaction>> idLoader,
+                              IntSupplier countLoader, int pageSize) {
+        this.pageLoader = pageLoader;
+        this.idLoader = idLoader;
+        this.countLoader = countLoader;
+        this.pageSize = pageSize;
+    }
+
+    public TransactionHistory(PageLoader pageLoader, Function<UUID, Optional<Transaction>> idLoader,
+                              IntSupplier countLoader) {
+        this(pageLoader, idLoader, countLoader, DEFAULT_PAGE_SIZE);
+    }
+
+    // Historique sans source : uniquement ce qui y est ajouté
+    public static TransactionHistory detached() {
+        TransactionHistory history = new TransactionHistory(null, null, null, DEFAULT_PAGE_SIZE);
+        history.exhausted = true;
+        history.count = 0;
+        return history;
+    }
+
+    public boolean contains(UUID id) {
+        return get(id).isPresent();
+    }
+
+    // Transactions chargées ou ajoutées d'abord, puis lecture par id tant que des pages restent à lire
+    public Optional<Transaction> get(UUID id) {
+        Transaction transaction = byId.get(id);
+        if (transaction == null) {
+            transaction = fetch(id);
+        }
+        return Optional.ofNullable(transaction);
+    }
+
+    // Ajout en O(log n) au plus sur les ajouts locaux; sans effet si l'id est déjà connu, y compris d'une
+    // transaction déjà en base mais pas encore lue : comptée par la source, elle arrivera avec sa page
+    public boolean add(Transaction transaction) {
+        if (byId.containsKey(transaction.getId()) || fetch(transaction.getId()) != null) {
+            return false;
+        }
+        byId.put(transaction.getId(), transaction);
+        int index = Collections.binarySearch(added, transaction, NEWEST_FIRST);
+        added.add(index < 0 ? -index - 1 : index, transaction);
+        if (count >= 0) {
+            count++;
+        }
+        return true;
+    }
+
+    // Remplace le contenu par un historique complet déjà lu
+    public void load(List<Transaction> transactions) {
+        byId.clear();
+        fetched.clear();
+        loaded.clear();
+        added.clear();
+        for (Transaction transaction : transactions) {
+            if (byId.putIfAbsent(transaction.getId(), transaction) == null) {
+                loaded.add(transaction);
+            }
+        }
+        loaded.sort(NEWEST_FIRST);
+        cursor = null;
+        exhausted = true;
+        count = loaded.size();
+    }
+
+    // Nombre total de transactions, lu une seule fois auprès de la source (wallet_stats en base)
+    public int size() {
+        if (count < 0) {
+            int total = countLoader.getAsInt();
+            count = total < 0 ? getLoadedCount() : Math.max(total, getLoadedCount());
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return !iterator().hasNext();
+    }
+
+    public int getLoadedCount() {
+        return byId.size();
+    }
+
+    public boolean isFullyLoaded() {
+        return exhausted;
+    }
+
+    // Les n plus récentes, en ne lisant que les pages nécessaires
+    public List<Transaction> latest(int n) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(n, pageSize));
+        for (Transaction transaction : this) {
+            if (transactions.size() >= n) {
+                break;
+            }
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Fusion des ajouts locaux et des pages lues en base dans l'ordre NEWEST_FIRST, la page suivante n'étant
+    // chargée qu'à la demande. Un ajout local retrouvé ensuite dans une page n'est rendu qu'une fois.
+    @Override
+    public Iterator<Transaction> iterator() {
+        List<Transaction> addedSnapshot = new ArrayList<>(added);
+        Set<UUID> addedIds = new HashSet<>();
+        for (Transaction transaction : addedSnapshot) {
+            addedIds.add(transaction.getId());
+        }
+        return new Iterator<Transaction>() {
+            private int addedIndex;
+            private int loadedIndex;
+            private final Set<UUID> returnedAdded = new HashSet<>();
+            private Transaction next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    Transaction candidate = advance();
+                    if (candidate == null) {
+                        return false;
+                    }
+                    if (!addedIds.contains(candidate.getId()) || returnedAdded.add(candidate.getId())) {
+                        next = candidate;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = next;
+                next = null;
+                return transaction;
+            }
+
+            // La plus récente des deux têtes; la tête lue en base est chargée avant toute comparaison
+            private Transaction advance() {
+                while (loadedIndex >= loaded.size() && !exhausted) {
+                    loadNextPage();
+                }
+                boolean hasLoaded = loadedIndex < loaded.size();
+                if (addedIndex < addedSnapshot.size() && (!hasLoaded
+                        || NEWEST_FIRST.compare(addedSnapshot.get(addedIndex), loaded.get(loadedIndex)) <= 0)) {
+                    return addedSnapshot.get(addedIndex++);
+                }
+                return hasLoaded ? loaded.get(loadedIndex++) : null;
+            }
+        };
+    }
+
+    // Lecture par id à la source, gardée jusqu'à ce que sa page soit lue; null une fois l'historique complet
+    private Transaction fetch(UUID id) {
+        if (exhausted || idLoader == null) {
+            return null;
+        }
+        Transaction transaction = fetched.get(id);
+        if (transaction == null) {
+            transaction = idLoader.apply(id).orElse(null);
+            if (transaction != null) {
+                fetched.put(id, transaction);
+            }
+        }
+        return transaction;
+    }
+
+    private void loadNextPage() {
+        List<Transaction> page = cursor == null
+                ? pageLoader.loadPage(null, null, pageSize)
+                : pageLoader.loadPage(cursor.getCreationDate(), cursor.getId(), pageSize);
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (page.isEmpty()) {
+            return;
+        }
+        cursor = page.get(page.size() - 1);
+        for (Transaction transaction : page) {
+            fetched.remove(transaction.getId());
+            Transaction known = byId.putIfAbsent(transaction.getId(), transaction);
+            if (known == null) {
+                loaded.add(transaction);
+            } else if (removeAdded(known)) {
+                // Ajout local écrit depuis en base : il prend sa place dans les pages
+                loaded.add(known);
+            }
+        }
+        if (exhausted) {
+            fetched.clear();
+        }
+    }
+
+    private boolean removeAdded(Transaction transaction) {
+        int index = Collections.binarySearch(added, transaction, NEWEST_FIRST);
+        if (index >= 0 && added.get(index) == transaction) {
+            added.remove(index);
+            return true;
+        }
+        return added.remove(transaction);
+    }
+}
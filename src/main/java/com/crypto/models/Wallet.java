@@ -1,7 +1,6 @@
 package main.java.com.crypto.models;
 
 import main.java.com.crypto.enums.CryptoType;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -10,13 +9,16 @@ public abstract class Wallet {
     private String address;
     private double balance;
     private CryptoType cryptoType;
-    private List<Transaction> transactions;
+    // Incrémentée à chaque écriture du wallet : sert de condition aux mises à jour optimistes
+    private long version;
+    // Détaché tant que le service ne l'a pas relié au dépôt de transactions
+    private TransactionHistory transactions;
 
     public Wallet(CryptoType cryptoType) {
         this.id = UUID.randomUUID();
         this.cryptoType = cryptoType;
         this.balance = 0.0;
-        this.transactions = new ArrayList<>();
+        this.transactions = TransactionHistory.detached();
         this.address = generateAddress();
     }
 
@@ -35,28 +37,25 @@ public abstract class Wallet {
     public CryptoType getCryptoType() { return cryptoType; }
     public void setCryptoType(CryptoType cryptoType) { this.cryptoType = cryptoType; }
 
-    public List<Transaction> getTransactions() { return transactions; }
-    public void setTransactions(List<Transaction> transactions) { this.transactions = transactions; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 
-    public void addTransaction(Transaction transaction) {
-        // Vérifier si la transaction n'existe pas déjà
-        boolean exists = this.transactions.stream()
-                .anyMatch(t -> t.getId().equals(transaction.getId()));
+    public TransactionHistory getTransactions() { return transactions; }
+    public void setTransactions(TransactionHistory transactions) { this.transactions = transactions; }
 
-        if (!exists) {
-            this.transactions.add(transaction);
-        }
+    // Ignorée si la transaction est déjà connue (test en O(1) sur l'id)
+    public void addTransaction(Transaction transaction) {
+        this.transactions.add(transaction);
     }
 
-    // Charger les transactions depuis la base de données
+    // Historique complet déjà lu, sans chargement paresseux
     public void loadTransactions(List<Transaction> transactions) {
-        this.transactions.clear();
-        this.transactions.addAll(transactions);
+        this.transactions.load(transactions);
     }
 
     @Override
     public String toString() {
-        return String.format("Wallet{id=%s, address=%s, balance=%.6f %s, transactions=%d}",
-                id, address, balance, cryptoType.getSymbol(), transactions.size());
+        return String.format("Wallet{id=%s, address=%s, balance=%.6f %s, loadedTransactions=%d}",
+                id, address, balance, cryptoType.getSymbol(), transactions.getLoadedCount());
     }
 }
\ No newline at end of file
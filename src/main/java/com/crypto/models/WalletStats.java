@@ -0,0 +1,61 @@
+package main.java.com.crypto.models;
+
+import main.java.com.crypto.enums.TransactionStatus;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Résumé de l'activité d'un wallet (table wallet_stats). Les transactions rejetées restent comptées
+// mais ne font pas partie des montants envoyés ni des frais.
+public class WalletStats {
+    private UUID walletId;
+    private long transactionCount;
+    private long pendingCount;
+    private double totalSent;
+    private double totalFees;
+    private LocalDateTime lastActivity;
+
+    public WalletStats(UUID walletId) {
+        this.walletId = walletId;
+    }
+
+    // Mêmes règles que le trigger wallet_stats_apply
+    public void add(Transaction transaction) {
+        transactionCount++;
+        if (transaction.getStatus() == TransactionStatus.PENDING) {
+            pendingCount++;
+        }
+        if (transaction.getStatus() != TransactionStatus.REJECTED) {
+            totalSent += transaction.getAmount();
+            totalFees += transaction.getFees();
+        }
+        if (lastActivity == null || transaction.getCreationDate().isAfter(lastActivity)) {
+            lastActivity = transaction.getCreationDate();
+        }
+    }
+
+    // Getters et setters
+    public UUID getWalletId() { return walletId; }
+    public void setWalletId(UUID walletId) { this.walletId = walletId; }
+
+    public long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(long transactionCount) { this.transactionCount = transactionCount; }
+
+    public long getPendingCount() { return pendingCount; }
+    public void setPendingCount(long pendingCount) { this.pendingCount = pendingCount; }
+
+    public double getTotalSent() { return totalSent; }
+    public void setTotalSent(double totalSent) { this.totalSent = totalSent; }
+
+    public double getTotalFees() { return totalFees; }
+    public void setTotalFees(double totalFees) { this.totalFees = totalFees; }
+
+    // null tant que le wallet n'a aucune transaction
+    public LocalDateTime getLastActivity() { return lastActivity; }
+    public void setLastActivity(LocalDateTime lastActivity) { this.lastActivity = lastActivity; }
+
+    @Override
+    public String toString() {
+        return String.format("WalletStats{walletId=%s, transactions=%d, pending=%d, sent=%.6f, fees=%.6f, lastActivity=%s}",
+                walletId, transactionCount, pendingCount, totalSent, totalFees, lastActivity);
+    }
+}
@@ -0,0 +1,156 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.utils.LoggerUtil;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+// Chargement massif par COPY ... FROM STDIN (CSV). Les lignes sont tirées d'un itérateur et envoyées
+// par blocs : la mémoire utilisée ne dépend pas du nombre de lignes chargées.
+public class BulkLoader {
+    private static BulkLoader instance;
+    private DatabaseConnection dbConnection;
+
+    // Taille (en caractères) d'un bloc envoyé au serveur
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private static final String TRANSACTION_COLUMNS = "(id, source_address, destination_address, amount, fees, " +
+            "creation_date, fee_level, status, crypto_type, wallet_id)";
+    private static final String WALLET_COLUMNS = "(id, address, balance, crypto_type)";
+
+    private BulkLoader() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    public static synchronized BulkLoader getInstance() {
+        if (instance == null) {
+            instance = new BulkLoader();
+        }
+        return instance;
+    }
+
+    // Renvoie le nombre de lignes chargées, -1 en cas d'erreur (rien n'est chargé : COPY est atomique)
+    public long copyTransactions(Iterator<Transaction> source) {
+        return copy("COPY transactions " + TRANSACTION_COLUMNS + " FROM STDIN WITH (FORMAT csv)",
+                source, BulkLoader::appendTransaction, "transactions");
+    }
+
+    public long copyWallets(Iterator<Wallet> source) {
+        return copy("COPY wallets " + WALLET_COLUMNS + " FROM STDIN WITH (FORMAT csv)",
+                source, BulkLoader::appendWallet, "wallets");
+    }
+
+    // Import d'un fichier CSV avec en-tête, colonnes dans l'ordre de TRANSACTION_COLUMNS, lu en flux
+    public long importTransactionsCsv(Path file) {
+        String sql = "COPY transactions " + TRANSACTION_COLUMNS + " FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+        try (Connection conn = dbConnection.getConnection();
+             Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+
+            CopyManager copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+            long rows = copyManager.copyIn(sql, reader);
+            LoggerUtil.logInfo(rows + " transactions importées depuis " + file);
+            return rows;
+        } catch (SQLException | IOException e) {
+            LoggerUtil.logError("Erreur lors de l'import des transactions depuis " + file, e);
+        }
+        return -1;
+    }
+
+    private <T> long copy(String sql, Iterator<T> source, BiConsumer<StringBuilder, T> encoder, String label) {
+        long start = System.nanoTime();
+        try (Connection conn = dbConnection.getConnection()) {
+            CopyManager copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+            CopyIn copyIn = copyManager.copyIn(sql);
+            try {
+                StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 1024);
+                while (source.hasNext()) {
+                    encoder.accept(chunk, source.next());
+                    if (chunk.length() >= CHUNK_CHARS) {
+                        flush(copyIn, chunk);
+                    }
+                }
+                flush(copyIn, chunk);
+                long rows = copyIn.endCopy();
+                long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                LoggerUtil.logInfo(String.format("%d %s chargés par COPY en %d ms (%d lignes/s)",
+                        rows, label, elapsedMillis, rows * 1000 / elapsedMillis));
+                return rows;
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LoggerUtil.logError("Erreur lors du chargement massif des " + label, e);
+        }
+        return -1;
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.length() == 0) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    private static void appendTransaction(StringBuilder out, Transaction transaction) {
+        out.append(transaction.getId()).append(',');
+        appendText(out, transaction.getSourceAddress()).append(',');
+        appendText(out, transaction.getDestinationAddress()).append(',');
+        out.append(transaction.getAmount()).append(',');
+        out.append(transaction.getFees()).append(',');
+        out.append(transaction.getCreationDate()).append(',');
+        out.append(transaction.getFeeLevel().name()).append(',');
+        out.append(transaction.getStatus().name()).append(',');
+        out.append(transaction.getCryptoType().name()).append(',');
+        if (transaction.getWalletId() != null) {
+            out.append(transaction.getWalletId());
+        }
+        out.append('\n');
+    }
+
+    private static void appendWallet(StringBuilder out, Wallet wallet) {
+        out.append(wallet.getId()).append(',');
+        appendText(out, wallet.getAddress()).append(',');
+        out.append(wallet.getBalance()).append(',');
+        out.append(wallet.getCryptoType().name()).append('\n');
+    }
+
+    // Champ CSV : entre guillemets (doublés à l'intérieur) seulement si nécessaire; vide = NULL
+    private static StringBuilder appendText(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,253 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.enums.CryptoType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cache LRU borné devant le repository des wallets, indexé par id et par adresse.
+// Les écritures passent par la base puis mettent à jour ou invalident le cache.
+// Le cache garde ses propres valeurs : chaque lecture renvoie un nouveau Wallet que l'appelant peut modifier.
+public class CachedWalletRepository implements IWallet {
+    private static CachedWalletRepository instance;
+    private final IWallet delegate;
+    private final int maxSize;
+
+    // Ordre d'accès : le premier élément est le moins récemment utilisé. Protégé par le verrou du cache.
+    private final LinkedHashMap<UUID, CachedWallet> byId;
+    private final Map<String, UUID> idsByAddress;
+    // Incrémenté à chaque écriture : une lecture en base commencée avant n'alimente pas le cache
+    private long generation;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private static final class CachedWallet {
+        final UUID id;
+        final String address;
+        final CryptoType cryptoType;
+        double balance;
+        long version;
+
+        CachedWallet(Wallet wallet) {
+            this.id = wallet.getId();
+            this.address = wallet.getAddress();
+            this.cryptoType = wallet.getCryptoType();
+            this.balance = wallet.getBalance();
+            this.version = wallet.getVersion();
+        }
+    }
+
+    CachedWalletRepository(IWallet delegate, int maxSize) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.idsByAddress = new HashMap<>();
+        this.byId = new LinkedHashMap<UUID, CachedWallet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedWallet> eldest) {
+                if (size() <= CachedWalletRepository.this.maxSize) {
+                    return false;
+                }
+                idsByAddress.remove(eldest.getValue().address);
+                evictionCount.increment();
+                return true;
+            }
+        };
+    }
+
+    public static synchronized CachedWalletRepository getInstance() {
+        if (instance == null) {
+            // Les stockages embarqués répondent déjà sans aller-retour : le cache n'y ferait que des copies en plus
+            int size = RepositoryFactory.isEmbedded() ? 0 : DatabaseConfig.WALLET_CACHE_SIZE;
+            instance = new CachedWalletRepository(RepositoryFactory.wallets(), size);
+        }
+        return instance;
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id) {
+        long startedAt;
+        synchronized (byId) {
+            CachedWallet cached = byId.get(id);
+            if (cached != null) {
+                hitCount.increment();
+                return Optional.of(toWallet(cached));
+            }
+            startedAt = generation;
+        }
+        missCount.increment();
+        Optional<Wallet> wallet = delegate.findById(id);
+        wallet.ifPresent(found -> putIfUnchanged(found, startedAt));
+        return wallet;
+    }
+
+    @Override
+    public Optional<Wallet> findByAddress(String address) {
+        long startedAt;
+        synchronized (byId) {
+            UUID id = idsByAddress.get(address);
+            if (id != null) {
+                hitCount.increment();
+                return Optional.of(toWallet(byId.get(id)));
+            }
+            startedAt = generation;
+        }
+        missCount.increment();
+        Optional<Wallet> wallet = delegate.findByAddress(address);
+        wallet.ifPresent(found -> putIfUnchanged(found, startedAt));
+        return wallet;
+    }
+
+    // Toujours lu en base : remplir le cache avec tous les wallets en chasserait le jeu de travail
+    @Override
+    public List<Wallet> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Wallet save(Wallet wallet) {
+        Wallet saved = delegate.save(wallet);
+        if (saved != null) {
+            put(saved);
+        } else {
+            invalidate(wallet.getId());
+        }
+        return saved;
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        delegate.deleteById(id);
+        invalidate(id);
+    }
+
+    @Override
+    public boolean updateBalance(UUID id, double balance) {
+        boolean updated = delegate.updateBalance(id, balance);
+        if (updated) {
+            cacheBalance(id, balance);
+        } else {
+            invalidate(id);
+        }
+        return updated;
+    }
+
+    // Un conflit signale une écriture d'une autre instance : l'entrée est retirée pour que la relecture aille en base
+    @Override
+    public boolean updateBalanceIfVersion(UUID id, long expectedVersion, double balance) {
+        boolean updated = delegate.updateBalanceIfVersion(id, expectedVersion, balance);
+        if (updated) {
+            cacheBalance(id, balance);
+        } else {
+            invalidate(id);
+        }
+        return updated;
+    }
+
+    @Override
+    public int saveAll(Collection<Wallet> wallets) {
+        int saved = delegate.saveAll(wallets);
+        for (Wallet wallet : wallets) {
+            invalidate(wallet.getId());
+        }
+        return saved;
+    }
+
+    @Override
+    public int updateBalanceAll(Map<UUID, Double> balances) {
+        int updated = delegate.updateBalanceAll(balances);
+        for (UUID id : balances.keySet()) {
+            invalidate(id);
+        }
+        return updated;
+    }
+
+    // Solde modifié en base hors de ce repository (débit SQL d'une transaction) et connu de l'appelant.
+    // Chaque écriture incrémente la version d'une unité; si une autre instance a aussi écrit, la prochaine
+    // mise à jour conditionnelle échouera et invalidera l'entrée.
+    public void cacheBalance(UUID id, double balance) {
+        synchronized (byId) {
+            generation++;
+            CachedWallet cached = byId.get(id);
+            if (cached != null) {
+                cached.balance = balance;
+                cached.version++;
+            }
+        }
+    }
+
+    // Solde modifié en base hors de ce repository sans que la nouvelle valeur soit connue
+    public void invalidate(UUID id) {
+        synchronized (byId) {
+            generation++;
+            CachedWallet removed = byId.remove(id);
+            if (removed != null) {
+                idsByAddress.remove(removed.address);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (byId) {
+            generation++;
+            byId.clear();
+            idsByAddress.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (byId) {
+            return byId.size();
+        }
+    }
+
+    public String getStatistics() {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        return String.format("Cache wallets: %d/%d entrées - Succès: %d - Échecs: %d - Taux de succès: %.1f%% - Évictions: %d",
+                size(), maxSize, hits, missCount.sum(), lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictionCount.sum());
+    }
+
+    private void put(Wallet wallet) {
+        synchronized (byId) {
+            generation++;
+            store(new CachedWallet(wallet));
+        }
+    }
+
+    private void putIfUnchanged(Wallet wallet, long startedAt) {
+        synchronized (byId) {
+            if (generation == startedAt) {
+                store(new CachedWallet(wallet));
+            }
+        }
+    }
+
+    private void store(CachedWallet cached) {
+        if (maxSize > 0) {
+            CachedWallet previous = byId.put(cached.id, cached);
+            if (previous != null && !previous.address.equals(cached.address)) {
+                idsByAddress.remove(previous.address);
+            }
+            idsByAddress.put(cached.address, cached.id);
+        }
+    }
+
+    private static Wallet toWallet(CachedWallet cached) {
+        Wallet wallet = WalletRepository.newWallet(cached.cryptoType);
+        wallet.setId(cached.id);
+        wallet.setAddress(cached.address);
+        wallet.setBalance(cached.balance);
+        wallet.setVersion(cached.version);
+        return wallet;
+    }
+}
@@ -0,0 +1,292 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.utils.LoggerUtil;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool borné de connexions JDBC. Chaque emprunt renvoie un proxy dont close() rend la connexion au pool.
+// Les connexions restées inactives trop longtemps sont validées avant d'être prêtées, et une tâche de fond
+// ferme celles inactives depuis idleTimeout ou ouvertes depuis plus de maxLifetime.
+class ConnectionPool {
+    // Une connexion rendue il y a moins de ce délai est prêtée sans aller-retour de validation
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+
+    private final String url;
+    private final Properties properties;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+
+    // Un permis par connexion empruntable : borne le nombre de connexions ouvertes
+    private final Semaphore permits;
+    // Pile LIFO : la connexion la plus récemment rendue est la plus chaude
+    private final Deque<PooledConnection> idle;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+
+    private static final class PooledConnection {
+        final Connection raw;
+        final long createdAt;
+        long lastReturnedAt;
+
+        PooledConnection(Connection raw, long createdAt) {
+            this.raw = raw;
+            this.createdAt = createdAt;
+            this.lastReturnedAt = createdAt;
+        }
+    }
+
+    ConnectionPool(String url, String username, String password, int maxSize, long borrowTimeoutMillis,
+                   long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds) {
+        this.url = url;
+        this.properties = new Properties();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        // pgjdbc réécrit les INSERT d'un batch en INSERT multi-lignes
+        properties.setProperty("reWriteBatchedInserts", "true");
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+        this.idle = new ArrayDeque<>();
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::evictStaleConnections,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Pool de connexions fermé");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Aucune connexion disponible après " + borrowTimeoutMillis
+                        + " ms (" + maxSize + " connexions en cours d'utilisation)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", e);
+        }
+
+        try {
+            PooledConnection pooled = takeUsableConnection();
+            recordWait(System.nanoTime() - start);
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Connexion inactive encore valide, sinon une nouvelle connexion
+    private PooledConnection takeUsableConnection() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                Connection raw = DriverManager.getConnection(url, properties);
+                createdCount.increment();
+                return new PooledConnection(raw, System.currentTimeMillis());
+            }
+            long now = System.currentTimeMillis();
+            if (now - pooled.createdAt >= maxLifetimeMillis) {
+                discard(pooled);
+                continue;
+            }
+            if (now - pooled.lastReturnedAt > VALIDATION_BYPASS_MILLIS && !isValid(pooled)) {
+                discard(pooled);
+                continue;
+            }
+            return pooled;
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled, boolean broken) {
+        try {
+            if (broken || closed || pooled.raw.isClosed()
+                    || System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis) {
+                discard(pooled);
+                return;
+            }
+            // Une transaction laissée ouverte par l'emprunteur ne doit pas fuiter vers le suivant
+            if (!pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discardedCount.increment();
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Erreur lors de la fermeture d'une connexion du pool: " + e.getMessage());
+        }
+    }
+
+    // Ferme les connexions inactives depuis trop longtemps ou ayant dépassé leur durée de vie maximale
+    private void evictStaleConnections() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> stale = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastReturnedAt >= idleTimeoutMillis || now - pooled.createdAt >= maxLifetimeMillis) {
+                    it.remove();
+                    stale.add(pooled);
+                }
+            }
+        }
+        for (PooledConnection pooled : stale) {
+            discard(pooled);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> remaining;
+        synchronized (idle) {
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : remaining) {
+            discard(pooled);
+        }
+    }
+
+    int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    String getStatistics() {
+        long borrows = borrowCount.sum();
+        double averageWaitMillis = borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+        return String.format("Pool: %d actives, %d inactives (max %d) - Emprunts: %d - Attente moyenne: %.3f ms"
+                        + " - Attente max: %.3f ms - Délais dépassés: %d - Connexions ouvertes: %d, fermées: %d",
+                getActiveCount(), getIdleCount(), maxSize, borrows, averageWaitMillis,
+                maxWaitNanos.get() / 1_000_000.0, timeoutCount.sum(), createdCount.sum(), discardedCount.sum());
+    }
+
+    // Proxy renvoyé à l'emprunteur : close() rend la connexion, toute utilisation ultérieure échoue
+    private Connection wrap(PooledConnection pooled) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+            private boolean broken;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("close".equals(name)) {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled, broken);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name)) {
+                    return returned || pooled.raw.isClosed();
+                }
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                if (returned) {
+                    throw new SQLException("Connexion déjà rendue au pool");
+                }
+                try {
+                    return method.invoke(pooled.raw, args);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    // Classe SQLSTATE 08 : connexion perdue, elle ne doit pas retourner dans le pool
+                    if (cause instanceof SQLException) {
+                        String state = ((SQLException) cause).getSQLState();
+                        if (state != null && state.startsWith("08")) {
+                            broken = true;
+                        }
+                    }
+                    throw cause;
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+}
@@ -3,22 +3,34 @@ package main.java.com.crypto.repositories;
 import main.java.com.crypto.config.DatabaseConfig;
 import main.java.com.crypto.utils.LoggerUtil;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+// Point d'accès des repositories au pool : chaque getConnection() emprunte une connexion
+// que le try-with-resources de l'appelant rend au pool en la fermant
 public class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
+    private ConnectionPool pool;
 
     private DatabaseConnection() {
-        try {
-            this.connection = DriverManager.getConnection(
-                    DatabaseConfig.URL,
-                    DatabaseConfig.USERNAME,
-                    DatabaseConfig.PASSWORD
-            );
+        DatabaseConfig.loadDriver();
+        this.pool = new ConnectionPool(
+                DatabaseConfig.URL,
+                DatabaseConfig.USERNAME,
+                DatabaseConfig.PASSWORD,
+                DatabaseConfig.POOL_MAX_SIZE,
+                DatabaseConfig.POOL_BORROW_TIMEOUT_MILLIS,
+                DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS,
+                DatabaseConfig.POOL_MAX_LIFETIME_MILLIS,
+                DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS
+        );
+        // Première connexion ouverte et validée tout de suite pour échouer au démarrage si la base est injoignable
+        try (Connection conn = pool.borrow()) {
+            if (!conn.isValid(DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS)) {
+                throw new SQLException("La base de données ne répond pas dans le délai de validation");
+            }
             LoggerUtil.logInfo("Connexion à la base de données établie avec succès");
         } catch (SQLException e) {
+            pool.close();
             LoggerUtil.logError("Erreur de connexion à la base de données: " + e.getMessage());
             throw new RuntimeException("Impossible de se connecter à la base de données", e);
         }
@@ -31,37 +43,34 @@ public class DatabaseConnection {
         return instance;
     }
 
-    public Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(
-                        DatabaseConfig.URL,
-                        DatabaseConfig.USERNAME,
-                        DatabaseConfig.PASSWORD
-                );
-            }
-        } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de la récupération de la connexion: " + e.getMessage());
+    // Ferme le pool à l'arrêt de l'application, sans l'ouvrir s'il n'a jamais servi
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.closeConnection();
+            instance = null;
         }
-        return connection;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
     }
 
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                LoggerUtil.logInfo("Connexion à la base de données fermée");
-            }
-        } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de la fermeture de la connexion: " + e.getMessage());
-        }
+        LoggerUtil.logInfo(pool.getStatistics());
+        pool.close();
+        LoggerUtil.logInfo("Pool de connexions à la base de données fermé");
     }
 
     public boolean testConnection() {
-        try {
-            return connection != null && !connection.isClosed();
+        try (Connection conn = pool.borrow()) {
+            return conn.isValid(DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS);
         } catch (SQLException e) {
             return false;
         }
     }
+
+    // Statistiques d'attente et d'occupation du pool
+    public String getPoolStatistics() {
+        return pool.getStatistics();
+    }
 }
@@ -0,0 +1,422 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.TransactionHistory;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Stockage des transactions en mémoire (STORAGE_BACKEND=memory) pour mesurer les services et le mempool
+// sans base ni réseau. Index : hachage sur l'id, historique trié par wallet (creation_date, id), ids par statut.
+// Les transactions stockées ne sortent jamais : chaque lecture renvoie une copie, comme une relecture en base.
+// Verrous toujours pris dans l'ordre transactions puis wallets.
+public class InMemoryTransactionRepository implements ITransaction {
+    private static InMemoryTransactionRepository instance;
+
+    // Même ordre que ORDER BY creation_date DESC, id DESC, ids comparés comme le type uuid de PostgreSQL
+    private static final Comparator<Transaction> NEWEST_FIRST = TransactionHistory.NEWEST_FIRST;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Transaction> byId = new HashMap<>();
+    private final NavigableSet<Transaction> byDate = new TreeSet<>(NEWEST_FIRST);
+    private final Map<UUID, NavigableSet<Transaction>> byWallet = new HashMap<>();
+    private final Map<TransactionStatus, Set<UUID>> byStatus = new EnumMap<>(TransactionStatus.class);
+    private InMemoryWalletRepository walletRepository;
+
+    private InMemoryTransactionRepository() {
+        this.walletRepository = InMemoryWalletRepository.getInstance();
+        for (TransactionStatus status : TransactionStatus.values()) {
+            byStatus.put(status, new HashSet<>());
+        }
+    }
+
+    public static synchronized InMemoryTransactionRepository getInstance() {
+        if (instance == null) {
+            instance = new InMemoryTransactionRepository();
+        }
+        return instance;
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID id) {
+        lock.readLock().lock();
+        try {
+            Transaction stored = byId.get(id);
+            return stored == null ? Optional.empty() : Optional.of(copyOf(stored));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        lock.readLock().lock();
+        try {
+            return copyAll(byDate, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            store(transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return transaction;
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Transaction stored = byId.get(id);
+            if (stored != null) {
+                unindex(stored);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByWalletId(UUID walletId) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Transaction> history = byWallet.get(walletId);
+            return history == null ? new ArrayList<>() : copyAll(history, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByStatus(String status) {
+        TransactionStatus transactionStatus;
+        try {
+            transactionStatus = TransactionStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return new ArrayList<>();
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (UUID id : byStatus.get(transactionStatus)) {
+                transactions.add(copyOf(byId.get(id)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        transactions.sort(NEWEST_FIRST);
+        return transactions;
+    }
+
+    @Override
+    public Set<UUID> findIdsByStatus(TransactionStatus status) {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(byStatus.get(status));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<UUID> ids) {
+        List<Transaction> transactions = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (UUID id : ids) {
+                Transaction stored = byId.get(id);
+                if (stored != null) {
+                    transactions.add(copyOf(stored));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // ORDER BY creation_date
+        transactions.sort(Comparator.comparing(Transaction::getCreationDate));
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> findPageByWalletId(UUID walletId, LocalDateTime beforeDate, UUID beforeId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Transaction> history = byWallet.get(walletId);
+            if (history == null) {
+                return new ArrayList<>();
+            }
+            if (beforeDate == null || beforeId == null) {
+                return copyAll(history, limit);
+            }
+            Transaction cursor = new Transaction(beforeId);
+            cursor.setCreationDate(beforeDate);
+            return copyAll(history.tailSet(cursor, false), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countByWalletId(UUID walletId) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Transaction> history = byWallet.get(walletId);
+            return history == null ? 0 : history.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Le consommateur est appelé hors verrou : il peut écrire dans le repository
+    @Override
+    public long forEachByWalletId(UUID walletId, Consumer<Transaction> consumer) {
+        List<Transaction> transactions = findByWalletId(walletId);
+        transactions.forEach(consumer);
+        return transactions.size();
+    }
+
+    @Override
+    public long forEachByStatus(TransactionStatus status, Consumer<Transaction> consumer) {
+        List<Transaction> transactions = findByStatus(status.name());
+        transactions.forEach(consumer);
+        return transactions.size();
+    }
+
+    @Override
+    public boolean updateStatus(UUID id, TransactionStatus status) {
+        lock.writeLock().lock();
+        try {
+            Transaction stored = byId.get(id);
+            if (stored == null) {
+                return false;
+            }
+            setStatus(stored, status);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int saveAll(Collection<Transaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            for (Transaction transaction : transactions) {
+                store(transaction);
+            }
+            return transactions.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Insertion et débit conditionnel atomiques : rien n'est inséré si le wallet ne peut pas payer
+    @Override
+    public OptionalDouble saveAndDebit(Transaction transaction, double totalAmount) {
+        lock.writeLock().lock();
+        try {
+            if (byId.containsKey(transaction.getId())) {
+                // Violation de clé primaire en base
+                LoggerUtil.logError("Transaction déjà enregistrée: " + transaction.getId());
+                return OptionalDouble.empty();
+            }
+            double newBalance = walletRepository.debit(transaction.getWalletId(), totalAmount);
+            store(transaction);
+            return OptionalDouble.of(newBalance);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Comme la version SQL : rejouable, et une transaction dont le débit n'a pas eu lieu (solde insuffisant) est
+    // écrite REJECTED. Sans clé étrangère ici, un wallet disparu compte comme un solde insuffisant.
+    @Override
+    public Set<UUID> saveAllAndDebit(List<Transaction> transactions, double[] debits) {
+        Set<UUID> refused = new HashSet<>();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (byId.containsKey(transaction.getId())) {
+                    continue;
+                }
+                if (walletRepository.debitIfCovered(transaction.getWalletId(), debits[i])) {
+                    store(transaction);
+                    continue;
+                }
+                Transaction rejected = copyOf(transaction);
+                rejected.setStatus(TransactionStatus.REJECTED);
+                store(rejected);
+                if (transaction.getStatus() != TransactionStatus.REJECTED) {
+                    refused.add(transaction.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return refused;
+    }
+
+    @Override
+    public int updateStatusAll(Collection<UUID> ids, TransactionStatus status) {
+        int updated = 0;
+        lock.writeLock().lock();
+        try {
+            for (UUID id : ids) {
+                Transaction stored = byId.get(id);
+                if (stored != null) {
+                    setStatus(stored, status);
+                    updated++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    // Même contrat que la version SQL : seules les transactions encore PENDING sont rejetées et remboursées
+    @Override
+    public Map<UUID, Double> rejectAndRefund(Collection<UUID> ids) {
+        Map<UUID, Double> refunds = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            for (UUID id : ids) {
+                Transaction stored = byId.get(id);
+                if (stored == null || stored.getStatus() != TransactionStatus.PENDING) {
+                    continue;
+                }
+                setStatus(stored, TransactionStatus.REJECTED);
+                double refund = stored.getAmount() + stored.getFees();
+                if (stored.getWalletId() != null && walletRepository.credit(stored.getWalletId(), refund)) {
+                    refunds.merge(stored.getWalletId(), refund, Double::sum);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return refunds;
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byDate.clear();
+            byWallet.clear();
+            for (Set<UUID> ids : byStatus.values()) {
+                ids.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ON DELETE CASCADE de la suppression d'un wallet
+    void deleteByWalletId(UUID walletId) {
+        lock.writeLock().lock();
+        try {
+            NavigableSet<Transaction> history = byWallet.get(walletId);
+            if (history != null) {
+                for (Transaction stored : new ArrayList<>(history)) {
+                    unindex(stored);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Upsert : la copie stockée remplace l'ancienne dans tous les index
+    private void store(Transaction transaction) {
+        Transaction previous = byId.get(transaction.getId());
+        if (previous != null) {
+            unindex(previous);
+        }
+        Transaction stored = copyOf(transaction);
+        byId.put(stored.getId(), stored);
+        byDate.add(stored);
+        if (stored.getWalletId() != null) {
+            byWallet.computeIfAbsent(stored.getWalletId(), id -> new TreeSet<>(NEWEST_FIRST)).add(stored);
+        }
+        byStatus.get(stored.getStatus()).add(stored.getId());
+    }
+
+    private void unindex(Transaction stored) {
+        byId.remove(stored.getId());
+        byDate.remove(stored);
+        if (stored.getWalletId() != null) {
+            NavigableSet<Transaction> history = byWallet.get(stored.getWalletId());
+            history.remove(stored);
+            if (history.isEmpty()) {
+                byWallet.remove(stored.getWalletId());
+            }
+        }
+        byStatus.get(stored.getStatus()).remove(stored.getId());
+    }
+
+    // Le statut ne fait pas partie de l'ordre des index triés : seul l'index par statut bouge
+    private void setStatus(Transaction stored, TransactionStatus status) {
+        byStatus.get(stored.getStatus()).remove(stored.getId());
+        stored.setStatus(status);
+        byStatus.get(status).add(stored.getId());
+    }
+
+    private static List<Transaction> copyAll(Collection<Transaction> source, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(source.size(), limit));
+        for (Transaction stored : source) {
+            if (transactions.size() >= limit) {
+                break;
+            }
+            transactions.add(copyOf(stored));
+        }
+        return transactions;
+    }
+
+    private static Transaction copyOf(Transaction source) {
+        Transaction transaction = new Transaction(source.getId());
+        transaction.setSourceAddress(source.getSourceAddress());
+        transaction.setDestinationAddress(source.getDestinationAddress());
+        transaction.setAmount(source.getAmount());
+        transaction.setFees(source.getFees());
+        transaction.setCreationDate(source.getCreationDate());
+        transaction.setFeeLevel(source.getFeeLevel());
+        transaction.setStatus(source.getStatus());
+        transaction.setCryptoType(source.getCryptoType());
+        transaction.setWalletId(source.getWalletId());
+        return transaction;
+    }
+}
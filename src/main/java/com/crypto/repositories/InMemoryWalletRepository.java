@@ -0,0 +1,265 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.exceptions.InsufficientBalanceException;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stockage des wallets en mémoire (STORAGE_BACKEND=memory), index de hachage sur l'id et l'adresse.
+// Les wallets stockés ne sortent jamais : chaque lecture renvoie une copie, comme une relecture en base.
+public class InMemoryWalletRepository implements IWallet {
+    private static InMemoryWalletRepository instance;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, StoredWallet> byId = new HashMap<>();
+    private final Map<String, UUID> idsByAddress = new HashMap<>();
+    // Ordre d'insertion, pour findAll du plus récent au plus ancien comme ORDER BY created_at DESC
+    private long sequence;
+
+    private static final class StoredWallet {
+        final Wallet wallet;
+        final long createdSequence;
+
+        StoredWallet(Wallet wallet, long createdSequence) {
+            this.wallet = wallet;
+            this.createdSequence = createdSequence;
+        }
+    }
+
+    private InMemoryWalletRepository() {
+    }
+
+    public static synchronized InMemoryWalletRepository getInstance() {
+        if (instance == null) {
+            instance = new InMemoryWalletRepository();
+        }
+        return instance;
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id) {
+        lock.readLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            return stored == null ? Optional.empty() : Optional.of(WalletRepository.copyOf(stored.wallet));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Wallet> findByAddress(String address) {
+        lock.readLock().lock();
+        try {
+            UUID id = idsByAddress.get(address);
+            return id == null ? Optional.empty() : Optional.of(WalletRepository.copyOf(byId.get(id).wallet));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Wallet> findAll() {
+        List<StoredWallet> stored;
+        lock.readLock().lock();
+        try {
+            stored = new ArrayList<>(byId.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stored.sort((a, b) -> Long.compare(b.createdSequence, a.createdSequence));
+        List<Wallet> wallets = new ArrayList<>(stored.size());
+        for (StoredWallet entry : stored) {
+            wallets.add(WalletRepository.copyOf(entry.wallet));
+        }
+        return wallets;
+    }
+
+    @Override
+    public Wallet save(Wallet wallet) {
+        lock.writeLock().lock();
+        try {
+            UUID ownerOfAddress = idsByAddress.get(wallet.getAddress());
+            if (ownerOfAddress != null && !ownerOfAddress.equals(wallet.getId())) {
+                // Contrainte UNIQUE sur l'adresse
+                LoggerUtil.logError("Adresse déjà utilisée par un autre wallet: " + wallet.getAddress());
+                return null;
+            }
+            store(wallet);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return wallet;
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.remove(id);
+            removed = stored != null;
+            if (removed) {
+                idsByAddress.remove(stored.wallet.getAddress());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // ON DELETE CASCADE, hors du verrou des wallets (le repository des transactions le prend avant le nôtre)
+        if (removed) {
+            InMemoryTransactionRepository.getInstance().deleteByWalletId(id);
+        }
+    }
+
+    @Override
+    public boolean updateBalance(UUID id, double balance) {
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null) {
+                return false;
+            }
+            setBalance(stored, balance);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateBalanceIfVersion(UUID id, long expectedVersion, double balance) {
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null || stored.wallet.getVersion() != expectedVersion) {
+                return false;
+            }
+            setBalance(stored, balance);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int saveAll(Collection<Wallet> wallets) {
+        lock.writeLock().lock();
+        try {
+            for (Wallet wallet : wallets) {
+                store(wallet);
+            }
+            return wallets.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateBalanceAll(Map<UUID, Double> balances) {
+        int updated = 0;
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                StoredWallet stored = byId.get(entry.getKey());
+                if (stored != null) {
+                    setBalance(stored, entry.getValue());
+                    updated++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    // Débit conditionnel, équivalent de UPDATE ... WHERE balance >= ? RETURNING balance
+    double debit(UUID id, double amount) {
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null || stored.wallet.getBalance() < amount) {
+                throw new InsufficientBalanceException("Solde insuffisant pour envoyer " + amount);
+            }
+            double newBalance = stored.wallet.getBalance() - amount;
+            setBalance(stored, newBalance);
+            return newBalance;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Débit de l'écriture différée, équivalent de UPDATE ... WHERE balance >= ? : faux si le solde ne suffit
+    // plus (débité ailleurs depuis la soumission) ou si le wallet a disparu
+    boolean debitIfCovered(UUID id, double amount) {
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null || stored.wallet.getBalance() < amount) {
+                return false;
+            }
+            setBalance(stored, stored.wallet.getBalance() - amount);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Remboursement d'une transaction rejetée, équivalent de UPDATE ... SET balance = balance + ?
+    boolean credit(UUID id, double amount) {
+        lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null) {
+                return false;
+            }
+            setBalance(stored, stored.wallet.getBalance() + amount);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            idsByAddress.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Comme en base : une insertion part de la version 0, une mise à jour incrémente la version stockée
+    private void store(Wallet wallet) {
+        StoredWallet previous = byId.get(wallet.getId());
+        long createdSequence = previous == null ? ++sequence : previous.createdSequence;
+        wallet.setVersion(previous == null ? 0 : previous.wallet.getVersion() + 1);
+        if (previous != null) {
+            idsByAddress.remove(previous.wallet.getAddress());
+        }
+        byId.put(wallet.getId(), new StoredWallet(WalletRepository.copyOf(wallet), createdSequence));
+        idsByAddress.put(wallet.getAddress(), wallet.getId());
+    }
+
+    private static void setBalance(StoredWallet stored, double balance) {
+        stored.wallet.setBalance(balance);
+        stored.wallet.setVersion(stored.wallet.getVersion() + 1);
+    }
+}
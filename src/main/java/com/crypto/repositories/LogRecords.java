@@ -0,0 +1,133 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import main.java.com.crypto.enums.TransactionStatus;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Format binaire des enregistrements du journal de stockage. Chaque enregistrement porte l'état complet
+// de l'entité : le dernier enregistrement d'un id l'emporte à la relecture.
+final class LogRecords {
+    static final byte WALLET = 1;
+    static final byte WALLET_DELETE = 2;
+    static final byte TRANSACTION = 3;
+    static final byte TRANSACTION_DELETE = 4;
+    // Transaction suivie du nouveau solde de son wallet : insertion et débit écrits d'un seul bloc
+    static final byte TRANSACTION_DEBIT = 5;
+
+    // id, wallet (avec son indicateur), montant, frais, date, niveau de frais, statut, type, longueurs d'adresses
+    private static final int TRANSACTION_FIXED_BYTES = 16 + 17 + 8 + 8 + 8 + 4 + 1 + 1 + 1 + 2 + 2;
+    // id, solde, type, longueur d'adresse, rang de création
+    private static final int WALLET_FIXED_BYTES = 16 + 8 + 1 + 2 + 8;
+    static final int DELETE_BYTES = 16;
+    static final int BALANCE_BYTES = 8;
+
+    private LogRecords() {
+    }
+
+    static int transactionBound(Transaction transaction) {
+        return TRANSACTION_FIXED_BYTES + stringBound(transaction.getSourceAddress())
+                + stringBound(transaction.getDestinationAddress());
+    }
+
+    static int walletBound(Wallet wallet) {
+        return WALLET_FIXED_BYTES + stringBound(wallet.getAddress());
+    }
+
+    static void writeTransaction(ByteBuffer out, Transaction transaction) {
+        putUuid(out, transaction.getId());
+        out.put((byte) (transaction.getWalletId() == null ? 0 : 1));
+        if (transaction.getWalletId() == null) {
+            out.putLong(0).putLong(0);
+        } else {
+            putUuid(out, transaction.getWalletId());
+        }
+        out.putDouble(transaction.getAmount());
+        out.putDouble(transaction.getFees());
+        LocalDateTime creationDate = transaction.getCreationDate();
+        out.putLong(creationDate.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(creationDate.getNano());
+        out.put((byte) transaction.getFeeLevel().ordinal());
+        out.put((byte) transaction.getStatus().ordinal());
+        out.put((byte) transaction.getCryptoType().ordinal());
+        putString(out, transaction.getSourceAddress());
+        putString(out, transaction.getDestinationAddress());
+    }
+
+    // Lit à partir de la position courante et avance jusqu'à la fin de la transaction
+    static Transaction readTransaction(ByteBuffer in) {
+        Transaction transaction = new Transaction(getUuid(in));
+        boolean hasWallet = in.get() != 0;
+        UUID walletId = getUuid(in);
+        transaction.setWalletId(hasWallet ? walletId : null);
+        transaction.setAmount(in.getDouble());
+        transaction.setFees(in.getDouble());
+        long epochSecond = in.getLong();
+        transaction.setCreationDate(LocalDateTime.ofEpochSecond(epochSecond, in.getInt(), ZoneOffset.UTC));
+        transaction.setFeeLevel(FeeLevel.values()[in.get()]);
+        transaction.setStatus(TransactionStatus.values()[in.get()]);
+        transaction.setCryptoType(CryptoType.values()[in.get()]);
+        transaction.setSourceAddress(getString(in));
+        transaction.setDestinationAddress(getString(in));
+        return transaction;
+    }
+
+    // Le rang de création garde l'ordre de findAll quand le compactage déplace le wallet en fin de journal
+    static void writeWallet(ByteBuffer out, Wallet wallet, long createdSequence) {
+        putUuid(out, wallet.getId());
+        out.putDouble(wallet.getBalance());
+        out.put((byte) wallet.getCryptoType().ordinal());
+        putString(out, wallet.getAddress());
+        out.putLong(createdSequence);
+    }
+
+    // Le rang de création suit : à lire ensuite avec in.getLong()
+    static Wallet readWallet(ByteBuffer in) {
+        UUID id = getUuid(in);
+        double balance = in.getDouble();
+        Wallet wallet = WalletRepository.newWallet(CryptoType.values()[in.get()]);
+        wallet.setId(id);
+        wallet.setBalance(balance);
+        wallet.setAddress(getString(in));
+        return wallet;
+    }
+
+    static void putUuid(ByteBuffer out, UUID id) {
+        out.putLong(id.getMostSignificantBits());
+        out.putLong(id.getLeastSignificantBits());
+    }
+
+    static UUID getUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static int stringBound(String value) {
+        return value == null ? 0 : 3 * value.length();
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
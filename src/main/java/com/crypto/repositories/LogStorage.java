@@ -0,0 +1,223 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stockage embarqué sans SQL (STORAGE_BACKEND=log) : un journal en ajout seul, segmenté et projeté en mémoire,
+// avec des index en mémoire reconstruits à l'ouverture par relecture du journal.
+// Un seul verrou pour les wallets et les transactions : un débit touche les deux et les écritures sont de
+// toute façon sérialisées par le journal.
+public class LogStorage {
+    private static LogStorage instance;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final SegmentLog log;
+    final LogTransactionRepository transactions;
+    final LogWalletRepository wallets;
+    private final double compactionThreshold;
+    private final ScheduledExecutorService compactor;
+
+    private LogStorage() {
+        try {
+            this.log = new SegmentLog(Paths.get(DatabaseConfig.LOG_DIRECTORY), DatabaseConfig.LOG_SEGMENT_BYTES,
+                    SegmentLog.SyncPolicy.valueOf(DatabaseConfig.LOG_FSYNC_POLICY.toUpperCase()),
+                    DatabaseConfig.LOG_FSYNC_INTERVAL_MILLIS);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible d'ouvrir le journal de stockage: " + e.getMessage(), e);
+        }
+        this.transactions = new LogTransactionRepository(this);
+        this.wallets = new LogWalletRepository(this);
+        this.compactionThreshold = DatabaseConfig.LOG_COMPACTION_THRESHOLD;
+        replay();
+        LoggerUtil.logInfo(String.format("Journal de stockage relu: %d wallets, %d transactions",
+                wallets.size(), transactions.size()));
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = DatabaseConfig.LOG_COMPACTION_INTERVAL_MILLIS;
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized LogStorage getInstance() {
+        if (instance == null) {
+            instance = new LogStorage();
+        }
+        return instance;
+    }
+
+    // Sans effet si le stockage n'a jamais été ouvert
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.compactor.shutdownNow();
+            LoggerUtil.logInfo(instance.getStatistics());
+            instance.lock.writeLock().lock();
+            try {
+                instance.log.close();
+            } finally {
+                instance.lock.writeLock().unlock();
+            }
+            instance = null;
+        }
+    }
+
+    public ITransaction transactions() {
+        return transactions;
+    }
+
+    public IWallet wallets() {
+        return wallets;
+    }
+
+    // Réécrit en tête du journal les enregistrements vivants des plus anciens segments peu remplis, puis
+    // supprime ces segments. Renvoie le nombre de segments supprimés.
+    public int compact() {
+        int compacted = 0;
+        lock.writeLock().lock();
+        try {
+            int segmentId;
+            while ((segmentId = log.oldestCompactable(compactionThreshold)) >= 0) {
+                log.forEachRecord(segmentId, this::relocate);
+                log.deleteSegment(segmentId);
+                compacted++;
+            }
+        } catch (IOException e) {
+            LoggerUtil.logError("Erreur lors du compactage du journal de stockage", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return compacted;
+    }
+
+    public String getStatistics() {
+        return log.getStatistics();
+    }
+
+    // L'enregistrement à cette adresse vient d'être remplacé pour l'un de ses propriétaires : ses octets ne
+    // sont récupérables que si plus aucun index ne le désigne (un TRANSACTION_DEBIT en a deux)
+    void dropped(long address) {
+        if (!isLive(log.typeAt(address), address, log.read(address))) {
+            log.release(address);
+        }
+    }
+
+    private boolean isLive(byte type, long address, ByteBuffer payload) {
+        switch (type) {
+            case LogRecords.WALLET:
+                return wallets.references(LogRecords.getUuid(payload), address);
+            case LogRecords.TRANSACTION:
+                return transactions.references(LogRecords.getUuid(payload), address);
+            case LogRecords.TRANSACTION_DEBIT:
+                UUID id = LogRecords.getUuid(payload);
+                payload.get();
+                UUID walletId = LogRecords.getUuid(payload);
+                return transactions.references(id, address) || wallets.referencesBalance(walletId, address);
+            default:
+                // Les suppressions ne sont plus utiles une fois leur segment devenu le plus ancien
+                return false;
+        }
+    }
+
+    private void relocate(byte type, long address, ByteBuffer payload) {
+        switch (type) {
+            case LogRecords.WALLET: {
+                UUID id = LogRecords.getUuid(payload.duplicate());
+                if (wallets.references(id, address)) {
+                    wallets.relocate(id);
+                }
+                break;
+            }
+            case LogRecords.TRANSACTION: {
+                UUID id = LogRecords.getUuid(payload.duplicate());
+                if (transactions.references(id, address)) {
+                    transactions.relocate(id, false);
+                }
+                break;
+            }
+            case LogRecords.TRANSACTION_DEBIT: {
+                ByteBuffer in = payload.duplicate();
+                UUID id = LogRecords.getUuid(in);
+                in.get();
+                UUID walletId = LogRecords.getUuid(in);
+                boolean transactionLive = transactions.references(id, address);
+                boolean balanceLive = wallets.referencesBalance(walletId, address);
+                if (transactionLive) {
+                    transactions.relocate(id, balanceLive);
+                } else if (balanceLive) {
+                    wallets.relocate(walletId);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void replay() {
+        List<Long> deadRecords = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            log.replay((type, address, payload) -> {
+                switch (type) {
+                    case LogRecords.WALLET: {
+                        Wallet wallet = LogRecords.readWallet(payload);
+                        wallets.applyWallet(wallet, payload.getLong(), address);
+                        break;
+                    }
+                    case LogRecords.WALLET_DELETE:
+                        wallets.applyDelete(LogRecords.getUuid(payload));
+                        deadRecords.add(address);
+                        break;
+                    case LogRecords.TRANSACTION:
+                        transactions.apply(LogRecords.readTransaction(payload), address);
+                        break;
+                    case LogRecords.TRANSACTION_DELETE:
+                        transactions.applyDelete(LogRecords.getUuid(payload));
+                        deadRecords.add(address);
+                        break;
+                    case LogRecords.TRANSACTION_DEBIT: {
+                        Transaction transaction = LogRecords.readTransaction(payload);
+                        transactions.apply(transaction, address);
+                        wallets.applyBalance(transaction.getWalletId(), payload.getDouble(), address);
+                        break;
+                    }
+                    default:
+                        LoggerUtil.logWarning("Type d'enregistrement inconnu dans le journal de stockage: " + type);
+                        deadRecords.add(address);
+                }
+            });
+            for (long deadRecord : deadRecords) {
+                log.release(deadRecord);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            int compacted = compact();
+            if (compacted > 0) {
+                LoggerUtil.logInfo("Journal de stockage compacté: " + compacted + " segment(s) supprimé(s)");
+            }
+        } catch (RuntimeException e) {
+            LoggerUtil.logError("Erreur lors du compactage du journal de stockage", e);
+        }
+    }
+}
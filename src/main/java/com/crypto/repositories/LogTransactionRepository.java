@@ -0,0 +1,468 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.TransactionHistory;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Transactions du journal de stockage (STORAGE_BACKEND=log). Seuls les index restent en mémoire (id, wallet,
+// date, statut et adresse de l'enregistrement) : chaque lecture décode la transaction directement dans le
+// segment projeté, sans copie intermédiaire. Une modification ajoute un enregistrement complet.
+final class LogTransactionRepository implements ITransaction {
+    private static final Comparator<TransactionRef> NEWEST_FIRST =
+            Comparator.comparing((TransactionRef ref) -> ref.creationDate)
+                    .thenComparing(ref -> ref.id, TransactionHistory.UUID_ORDER).reversed();
+
+    private final LogStorage storage;
+    private final Map<UUID, TransactionRef> byId = new HashMap<>();
+    private final NavigableSet<TransactionRef> byDate = new TreeSet<>(NEWEST_FIRST);
+    private final Map<UUID, NavigableSet<TransactionRef>> byWallet = new HashMap<>();
+    private final Map<TransactionStatus, Set<UUID>> byStatus = new EnumMap<>(TransactionStatus.class);
+
+    private static final class TransactionRef {
+        final UUID id;
+        final UUID walletId;
+        final LocalDateTime creationDate;
+        final TransactionStatus status;
+        final long address;
+
+        TransactionRef(UUID id, UUID walletId, LocalDateTime creationDate, TransactionStatus status, long address) {
+            this.id = id;
+            this.walletId = walletId;
+            this.creationDate = creationDate;
+            this.status = status;
+            this.address = address;
+        }
+    }
+
+    LogTransactionRepository(LogStorage storage) {
+        this.storage = storage;
+        for (TransactionStatus status : TransactionStatus.values()) {
+            byStatus.put(status, new HashSet<>());
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID id) {
+        storage.lock.readLock().lock();
+        try {
+            TransactionRef ref = byId.get(id);
+            return ref == null ? Optional.empty() : Optional.of(read(ref));
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        storage.lock.readLock().lock();
+        try {
+            return readAll(byDate, Integer.MAX_VALUE);
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        storage.lock.writeLock().lock();
+        try {
+            write(transaction);
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return transaction;
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        storage.lock.writeLock().lock();
+        try {
+            if (!byId.containsKey(id)) {
+                return;
+            }
+            long tombstone = storage.log.append(LogRecords.TRANSACTION_DELETE, LogRecords.DELETE_BYTES,
+                    out -> LogRecords.putUuid(out, id));
+            storage.log.release(tombstone);
+            applyDelete(id);
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByWalletId(UUID walletId) {
+        storage.lock.readLock().lock();
+        try {
+            NavigableSet<TransactionRef> history = byWallet.get(walletId);
+            return history == null ? new ArrayList<>() : readAll(history, Integer.MAX_VALUE);
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByStatus(String status) {
+        TransactionStatus transactionStatus;
+        try {
+            transactionStatus = TransactionStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return new ArrayList<>();
+        }
+        List<TransactionRef> refs = new ArrayList<>();
+        List<Transaction> transactions;
+        storage.lock.readLock().lock();
+        try {
+            for (UUID id : byStatus.get(transactionStatus)) {
+                refs.add(byId.get(id));
+            }
+            refs.sort(NEWEST_FIRST);
+            transactions = readAll(refs, Integer.MAX_VALUE);
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+        return transactions;
+    }
+
+    @Override
+    public Set<UUID> findIdsByStatus(TransactionStatus status) {
+        storage.lock.readLock().lock();
+        try {
+            return new HashSet<>(byStatus.get(status));
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<UUID> ids) {
+        List<Transaction> transactions = new ArrayList<>(ids.size());
+        storage.lock.readLock().lock();
+        try {
+            for (UUID id : ids) {
+                TransactionRef ref = byId.get(id);
+                if (ref != null) {
+                    transactions.add(read(ref));
+                }
+            }
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+        // ORDER BY creation_date
+        transactions.sort(Comparator.comparing(Transaction::getCreationDate));
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> findPageByWalletId(UUID walletId, LocalDateTime beforeDate, UUID beforeId, int limit) {
+        storage.lock.readLock().lock();
+        try {
+            NavigableSet<TransactionRef> history = byWallet.get(walletId);
+            if (history == null) {
+                return new ArrayList<>();
+            }
+            if (beforeDate == null || beforeId == null) {
+                return readAll(history, limit);
+            }
+            TransactionRef cursor = new TransactionRef(beforeId, walletId, beforeDate, null, -1);
+            return readAll(history.tailSet(cursor, false), limit);
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countByWalletId(UUID walletId) {
+        storage.lock.readLock().lock();
+        try {
+            NavigableSet<TransactionRef> history = byWallet.get(walletId);
+            return history == null ? 0 : history.size();
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    // Le consommateur est appelé hors verrou : il peut écrire dans le repository
+    @Override
+    public long forEachByWalletId(UUID walletId, Consumer<Transaction> consumer) {
+        List<Transaction> transactions = findByWalletId(walletId);
+        transactions.forEach(consumer);
+        return transactions.size();
+    }
+
+    @Override
+    public long forEachByStatus(TransactionStatus status, Consumer<Transaction> consumer) {
+        List<Transaction> transactions = findByStatus(status.name());
+        transactions.forEach(consumer);
+        return transactions.size();
+    }
+
+    @Override
+    public boolean updateStatus(UUID id, TransactionStatus status) {
+        storage.lock.writeLock().lock();
+        try {
+            return rewriteStatus(id, status);
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int saveAll(Collection<Transaction> transactions) {
+        storage.lock.writeLock().lock();
+        try {
+            for (Transaction transaction : transactions) {
+                write(transaction);
+            }
+            return transactions.size();
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    // Insertion et débit conditionnel dans un seul enregistrement : rien n'est écrit si le wallet ne peut pas payer
+    @Override
+    public OptionalDouble saveAndDebit(Transaction transaction, double totalAmount) {
+        storage.lock.writeLock().lock();
+        try {
+            if (byId.containsKey(transaction.getId())) {
+                // Violation de clé primaire en base
+                LoggerUtil.logError("Transaction déjà enregistrée: " + transaction.getId());
+                return OptionalDouble.empty();
+            }
+            double newBalance = storage.wallets.balanceForDebit(transaction.getWalletId(), totalAmount) - totalAmount;
+            writeWithDebit(transaction, newBalance);
+            return OptionalDouble.of(newBalance);
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    // Comme la version SQL : rejouable, et une transaction dont le débit n'a pas eu lieu (solde insuffisant) est
+    // écrite REJECTED. Sans clé étrangère ici, un wallet disparu compte comme un solde insuffisant.
+    @Override
+    public Set<UUID> saveAllAndDebit(List<Transaction> transactions, double[] debits) {
+        Set<UUID> refused = new HashSet<>();
+        storage.lock.writeLock().lock();
+        try {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (byId.containsKey(transaction.getId())) {
+                    continue;
+                }
+                UUID walletId = transaction.getWalletId();
+                if (walletId != null && storage.wallets.exists(walletId)
+                        && storage.wallets.balanceOf(walletId) >= debits[i]) {
+                    writeWithDebit(transaction, storage.wallets.balanceOf(walletId) - debits[i]);
+                    continue;
+                }
+                if (transaction.getStatus() != TransactionStatus.REJECTED) {
+                    refused.add(transaction.getId());
+                    transaction = rejectedCopy(transaction);
+                }
+                write(transaction);
+            }
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return refused;
+    }
+
+    @Override
+    public int updateStatusAll(Collection<UUID> ids, TransactionStatus status) {
+        int updated = 0;
+        storage.lock.writeLock().lock();
+        try {
+            for (UUID id : ids) {
+                if (rewriteStatus(id, status)) {
+                    updated++;
+                }
+            }
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    // Statut et solde remboursé dans un seul enregistrement, transaction par transaction : un arrêt brutal
+    // ne peut pas séparer le rejet de son remboursement
+    @Override
+    public Map<UUID, Double> rejectAndRefund(Collection<UUID> ids) {
+        Map<UUID, Double> refunds = new HashMap<>();
+        storage.lock.writeLock().lock();
+        try {
+            for (UUID id : ids) {
+                TransactionRef ref = byId.get(id);
+                if (ref == null || ref.status != TransactionStatus.PENDING) {
+                    continue;
+                }
+                Transaction transaction = read(ref);
+                transaction.setStatus(TransactionStatus.REJECTED);
+                UUID walletId = transaction.getWalletId();
+                if (walletId != null && storage.wallets.exists(walletId)) {
+                    double refund = transaction.getAmount() + transaction.getFees();
+                    writeWithDebit(transaction, storage.wallets.balanceOf(walletId) + refund);
+                    refunds.merge(walletId, refund, Double::sum);
+                } else {
+                    write(transaction);
+                }
+            }
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return refunds;
+    }
+
+    public int size() {
+        storage.lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    // Les méthodes suivantes sont appelées sous le verrou d'écriture du stockage
+
+    void apply(Transaction transaction, long address) {
+        TransactionRef previous = byId.get(transaction.getId());
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(new TransactionRef(transaction.getId(), transaction.getWalletId(), transaction.getCreationDate(),
+                transaction.getStatus(), address));
+        if (previous != null) {
+            storage.dropped(previous.address);
+        }
+    }
+
+    void applyDelete(UUID id) {
+        TransactionRef removed = byId.get(id);
+        if (removed != null) {
+            unindex(removed);
+            storage.dropped(removed.address);
+        }
+    }
+
+    void applyDeleteByWalletId(UUID walletId) {
+        NavigableSet<TransactionRef> history = byWallet.get(walletId);
+        if (history != null) {
+            for (TransactionRef ref : new ArrayList<>(history)) {
+                unindex(ref);
+                storage.dropped(ref.address);
+            }
+        }
+    }
+
+    boolean references(UUID id, long address) {
+        TransactionRef ref = byId.get(id);
+        return ref != null && ref.address == address;
+    }
+
+    // Compactage : la transaction est réécrite en tête du journal, avec le solde de son wallet si l'ancien
+    // enregistrement portait encore le dernier solde connu
+    void relocate(UUID id, boolean withBalance) {
+        Transaction transaction = read(byId.get(id));
+        if (withBalance) {
+            writeWithDebit(transaction, storage.wallets.balanceOf(transaction.getWalletId()));
+        } else {
+            write(transaction);
+        }
+    }
+
+    private void write(Transaction transaction) {
+        long address = storage.log.append(LogRecords.TRANSACTION, LogRecords.transactionBound(transaction),
+                out -> LogRecords.writeTransaction(out, transaction));
+        apply(transaction, address);
+    }
+
+    private void writeWithDebit(Transaction transaction, double newBalance) {
+        long address = storage.log.append(LogRecords.TRANSACTION_DEBIT,
+                LogRecords.transactionBound(transaction) + LogRecords.BALANCE_BYTES, out -> {
+                    LogRecords.writeTransaction(out, transaction);
+                    out.putDouble(newBalance);
+                });
+        apply(transaction, address);
+        storage.wallets.applyBalance(transaction.getWalletId(), newBalance, address);
+    }
+
+    // L'appelant garde son objet inchangé : seule la copie écrite porte le statut REJECTED
+    private static Transaction rejectedCopy(Transaction source) {
+        Transaction transaction = new Transaction(source.getId());
+        transaction.setSourceAddress(source.getSourceAddress());
+        transaction.setDestinationAddress(source.getDestinationAddress());
+        transaction.setAmount(source.getAmount());
+        transaction.setFees(source.getFees());
+        transaction.setCreationDate(source.getCreationDate());
+        transaction.setFeeLevel(source.getFeeLevel());
+        transaction.setStatus(TransactionStatus.REJECTED);
+        transaction.setCryptoType(source.getCryptoType());
+        transaction.setWalletId(source.getWalletId());
+        return transaction;
+    }
+
+    private boolean rewriteStatus(UUID id, TransactionStatus status) {
+        TransactionRef ref = byId.get(id);
+        if (ref == null) {
+            return false;
+        }
+        Transaction transaction = read(ref);
+        transaction.setStatus(status);
+        write(transaction);
+        return true;
+    }
+
+    private void index(TransactionRef ref) {
+        byId.put(ref.id, ref);
+        byDate.add(ref);
+        if (ref.walletId != null) {
+            byWallet.computeIfAbsent(ref.walletId, id -> new TreeSet<>(NEWEST_FIRST)).add(ref);
+        }
+        byStatus.get(ref.status).add(ref.id);
+    }
+
+    private void unindex(TransactionRef ref) {
+        byId.remove(ref.id);
+        byDate.remove(ref);
+        if (ref.walletId != null) {
+            NavigableSet<TransactionRef> history = byWallet.get(ref.walletId);
+            history.remove(ref);
+            if (history.isEmpty()) {
+                byWallet.remove(ref.walletId);
+            }
+        }
+        byStatus.get(ref.status).remove(ref.id);
+    }
+
+    private Transaction read(TransactionRef ref) {
+        return LogRecords.readTransaction(storage.log.read(ref.address));
+    }
+
+    private List<Transaction> readAll(Collection<TransactionRef> refs, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(refs.size(), limit));
+        for (TransactionRef ref : refs) {
+            if (transactions.size() >= limit) {
+                break;
+            }
+            transactions.add(read(ref));
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,284 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.exceptions.InsufficientBalanceException;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// Wallets du journal de stockage (STORAGE_BACKEND=log). Peu nombreux et petits : ils restent entiers en mémoire,
+// le journal ne sert qu'à la durabilité. Chaque wallet connaît son dernier enregistrement WALLET et le dernier
+// enregistrement portant son solde (WALLET ou TRANSACTION_DEBIT). La version des wallets n'est pas journalisée :
+// elle repart de 0 à la relecture, ce qui suffit au compare-and-set dans un processus unique.
+final class LogWalletRepository implements IWallet {
+    private final LogStorage storage;
+    private final Map<UUID, StoredWallet> byId = new HashMap<>();
+    private final Map<String, UUID> idsByAddress = new HashMap<>();
+    private long sequence;
+
+    static final class StoredWallet {
+        final Wallet wallet;
+        final long createdSequence;
+        long recordAddress;
+        long balanceAddress;
+
+        StoredWallet(Wallet wallet, long createdSequence, long recordAddress) {
+            this.wallet = wallet;
+            this.createdSequence = createdSequence;
+            this.recordAddress = recordAddress;
+            this.balanceAddress = recordAddress;
+        }
+    }
+
+    LogWalletRepository(LogStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id) {
+        storage.lock.readLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            return stored == null ? Optional.empty() : Optional.of(WalletRepository.copyOf(stored.wallet));
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Wallet> findByAddress(String address) {
+        storage.lock.readLock().lock();
+        try {
+            UUID id = idsByAddress.get(address);
+            return id == null ? Optional.empty() : Optional.of(WalletRepository.copyOf(byId.get(id).wallet));
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Wallet> findAll() {
+        List<StoredWallet> stored;
+        storage.lock.readLock().lock();
+        try {
+            stored = new ArrayList<>(byId.values());
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+        stored.sort((a, b) -> Long.compare(b.createdSequence, a.createdSequence));
+        List<Wallet> wallets = new ArrayList<>(stored.size());
+        for (StoredWallet entry : stored) {
+            wallets.add(WalletRepository.copyOf(entry.wallet));
+        }
+        return wallets;
+    }
+
+    @Override
+    public Wallet save(Wallet wallet) {
+        storage.lock.writeLock().lock();
+        try {
+            UUID ownerOfAddress = idsByAddress.get(wallet.getAddress());
+            if (ownerOfAddress != null && !ownerOfAddress.equals(wallet.getId())) {
+                // Contrainte UNIQUE sur l'adresse
+                LoggerUtil.logError("Adresse déjà utilisée par un autre wallet: " + wallet.getAddress());
+                return null;
+            }
+            write(wallet);
+            wallet.setVersion(byId.get(wallet.getId()).wallet.getVersion());
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return wallet;
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        storage.lock.writeLock().lock();
+        try {
+            if (!byId.containsKey(id)) {
+                return;
+            }
+            long tombstone = storage.log.append(LogRecords.WALLET_DELETE, LogRecords.DELETE_BYTES,
+                    out -> LogRecords.putUuid(out, id));
+            storage.log.release(tombstone);
+            applyDelete(id);
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateBalance(UUID id, double balance) {
+        storage.lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null) {
+                return false;
+            }
+            Wallet wallet = WalletRepository.copyOf(stored.wallet);
+            wallet.setBalance(balance);
+            write(wallet);
+            return true;
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateBalanceIfVersion(UUID id, long expectedVersion, double balance) {
+        storage.lock.writeLock().lock();
+        try {
+            StoredWallet stored = byId.get(id);
+            if (stored == null || stored.wallet.getVersion() != expectedVersion) {
+                return false;
+            }
+            Wallet wallet = WalletRepository.copyOf(stored.wallet);
+            wallet.setBalance(balance);
+            write(wallet);
+            return true;
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int saveAll(Collection<Wallet> wallets) {
+        storage.lock.writeLock().lock();
+        try {
+            for (Wallet wallet : wallets) {
+                write(wallet);
+            }
+            return wallets.size();
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateBalanceAll(Map<UUID, Double> balances) {
+        int updated = 0;
+        storage.lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                StoredWallet stored = byId.get(entry.getKey());
+                if (stored != null) {
+                    Wallet wallet = WalletRepository.copyOf(stored.wallet);
+                    wallet.setBalance(entry.getValue());
+                    write(wallet);
+                    updated++;
+                }
+            }
+        } finally {
+            storage.lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    public int size() {
+        storage.lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            storage.lock.readLock().unlock();
+        }
+    }
+
+    // Les méthodes suivantes sont appelées sous le verrou d'écriture du stockage
+
+    // Solde disponible pour un débit conditionnel, équivalent de WHERE balance >= ?
+    double balanceForDebit(UUID id, double amount) {
+        StoredWallet stored = byId.get(id);
+        if (stored == null || stored.wallet.getBalance() < amount) {
+            throw new InsufficientBalanceException("Solde insuffisant pour envoyer " + amount);
+        }
+        return stored.wallet.getBalance();
+    }
+
+    boolean exists(UUID id) {
+        return byId.containsKey(id);
+    }
+
+    double balanceOf(UUID id) {
+        return byId.get(id).wallet.getBalance();
+    }
+
+    // Le solde vient d'être écrit dans l'enregistrement TRANSACTION_DEBIT situé à recordAddress
+    void applyBalance(UUID id, double balance, long recordAddress) {
+        StoredWallet stored = byId.get(id);
+        if (stored == null) {
+            return;
+        }
+        long previous = stored.balanceAddress;
+        stored.wallet.setBalance(balance);
+        stored.wallet.setVersion(stored.wallet.getVersion() + 1);
+        stored.balanceAddress = recordAddress;
+        if (previous != stored.recordAddress) {
+            storage.dropped(previous);
+        }
+    }
+
+    void applyWallet(Wallet wallet, long createdSequence, long recordAddress) {
+        StoredWallet previous = byId.get(wallet.getId());
+        if (previous != null) {
+            idsByAddress.remove(previous.wallet.getAddress());
+        }
+        sequence = Math.max(sequence, createdSequence);
+        Wallet stored = WalletRepository.copyOf(wallet);
+        stored.setVersion(previous == null ? 0 : previous.wallet.getVersion() + 1);
+        byId.put(wallet.getId(), new StoredWallet(stored, createdSequence, recordAddress));
+        idsByAddress.put(wallet.getAddress(), wallet.getId());
+        if (previous != null) {
+            dropAddresses(previous);
+        }
+    }
+
+    // ON DELETE CASCADE : une seule pierre tombale pour le wallet et son historique. À la relecture, le wallet
+    // peut déjà avoir disparu avec un segment compacté alors que des transactions restent dans les suivants.
+    void applyDelete(UUID id) {
+        StoredWallet removed = byId.remove(id);
+        if (removed != null) {
+            idsByAddress.remove(removed.wallet.getAddress());
+            dropAddresses(removed);
+        }
+        storage.transactions.applyDeleteByWalletId(id);
+    }
+
+    boolean references(UUID id, long address) {
+        StoredWallet stored = byId.get(id);
+        return stored != null && (stored.recordAddress == address || stored.balanceAddress == address);
+    }
+
+    boolean referencesBalance(UUID id, long address) {
+        StoredWallet stored = byId.get(id);
+        return stored != null && stored.balanceAddress == address;
+    }
+
+    // Compactage : réécrit l'état courant en tête du journal, identité et solde dans un même enregistrement
+    void relocate(UUID id) {
+        long version = byId.get(id).wallet.getVersion();
+        write(byId.get(id).wallet);
+        // Même contenu : la version ne change pas
+        byId.get(id).wallet.setVersion(version);
+    }
+
+    private void write(Wallet wallet) {
+        StoredWallet previous = byId.get(wallet.getId());
+        long createdSequence = previous == null ? sequence + 1 : previous.createdSequence;
+        long address = storage.log.append(LogRecords.WALLET, LogRecords.walletBound(wallet),
+                out -> LogRecords.writeWallet(out, wallet, createdSequence));
+        applyWallet(wallet, createdSequence, address);
+    }
+
+    private void dropAddresses(StoredWallet stored) {
+        storage.dropped(stored.recordAddress);
+        if (stored.balanceAddress != stored.recordAddress) {
+            storage.dropped(stored.balanceAddress);
+        }
+    }
+}
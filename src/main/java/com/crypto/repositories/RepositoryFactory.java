@@ -0,0 +1,39 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.config.DatabaseConfig;
+
+// Choix du stockage au démarrage selon STORAGE_BACKEND : PostgreSQL par défaut, "memory" pour les tests de charge,
+// "log" pour le journal embarqué
+public final class RepositoryFactory {
+    private RepositoryFactory() {
+    }
+
+    public static boolean isInMemory() {
+        return "memory".equalsIgnoreCase(DatabaseConfig.STORAGE_BACKEND);
+    }
+
+    public static boolean isLog() {
+        return "log".equalsIgnoreCase(DatabaseConfig.STORAGE_BACKEND);
+    }
+
+    // Stockage dans le processus : ni base, ni SQL, ni COPY
+    public static boolean isEmbedded() {
+        return isInMemory() || isLog();
+    }
+
+    public static ITransaction transactions() {
+        if (isLog()) {
+            return LogStorage.getInstance().transactions();
+        }
+        return isInMemory() ? InMemoryTransactionRepository.getInstance() : TransactionRepository.getInstance();
+    }
+
+    public static IWallet wallets() {
+        if (isLog()) {
+            return LogStorage.getInstance().wallets();
+        }
+        return isInMemory() ? InMemoryWalletRepository.getInstance() : WalletRepository.getInstance();
+    }
+}
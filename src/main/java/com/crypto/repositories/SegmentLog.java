@@ -0,0 +1,342 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.utils.LoggerUtil;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Journal en ajout seul, découpé en segments de taille fixe projetés en mémoire.
+// Enregistrement : longueur des données, CRC32 (type et données), type, données. Une longueur nulle marque
+// la fin des données d'un segment (les fichiers sont créés remplis de zéros).
+// Une adresse désigne un enregistrement : numéro de segment sur les 32 bits de poids fort, position ensuite.
+final class SegmentLog {
+    private static final int HEADER_BYTES = 4 + 4 + 1;
+    private static final String SUFFIX = ".log";
+
+    enum SyncPolicy {
+        // fsync avant de rendre la main, partagé entre les écrivains concurrents (commit de groupe)
+        ALWAYS,
+        // fsync périodique par un thread de fond : une fenêtre d'écritures peut être perdue sur panne machine
+        GROUP,
+        // Laissé au système, sauf au changement de segment et à la fermeture
+        NONE
+    }
+
+    interface RecordVisitor {
+        void visit(byte type, long address, ByteBuffer payload);
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final MappedByteBuffer buffer;
+        // Fin des données écrites; figée une fois le segment scellé
+        volatile int end;
+        // Octets des enregistrements encore référencés par un index
+        final AtomicLong liveBytes = new AtomicLong();
+
+        Segment(int id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final SyncPolicy syncPolicy;
+    private final Map<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment active;
+
+    // Octets ajoutés depuis l'ouverture et octets déjà forcés sur disque (positions logiques croissantes)
+    private volatile long appendedBytes;
+    private volatile long syncedBytes;
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncer;
+
+    SegmentLog(Path directory, int segmentBytes, SyncPolicy syncPolicy, long syncIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncPolicy = syncPolicy;
+        Files.createDirectories(directory);
+        openExistingSegments();
+        if (active == null) {
+            active = createSegment(0);
+        }
+        if (syncPolicy == SyncPolicy.GROUP) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "segment-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    // Relit tous les enregistrements valides, du plus ancien au plus récent
+    void replay(RecordVisitor visitor) {
+        for (Segment segment : segments.values()) {
+            scan(segment, segment.end, visitor);
+        }
+    }
+
+    // Écrit un enregistrement dont les données (au plus maxPayloadBytes) sont produites par writer
+    long append(byte type, int maxPayloadBytes, Consumer<ByteBuffer> writer) {
+        if (HEADER_BYTES + maxPayloadBytes > segmentBytes) {
+            throw new IllegalArgumentException("Enregistrement trop grand pour un segment: " + maxPayloadBytes);
+        }
+        long address;
+        long appended;
+        synchronized (this) {
+            if (active.end + HEADER_BYTES + maxPayloadBytes > segmentBytes) {
+                roll();
+            }
+            Segment segment = active;
+            int position = segment.end;
+            ByteBuffer out = segment.buffer.duplicate();
+            out.position(position + HEADER_BYTES);
+            writer.accept(out);
+            int length = out.position() - position - HEADER_BYTES;
+
+            ByteBuffer payload = segment.buffer.duplicate();
+            payload.position(position + HEADER_BYTES);
+            payload.limit(position + HEADER_BYTES + length);
+            // La longueur est écrite en dernier : l'enregistrement n'existe qu'une fois complet
+            segment.buffer.put(position + 8, type);
+            segment.buffer.putInt(position + 4, checksum(type, payload));
+            segment.buffer.putInt(position, length);
+
+            segment.end = position + HEADER_BYTES + length;
+            segment.liveBytes.addAndGet(HEADER_BYTES + length);
+            address = address(segment.id, position);
+            appended = appendedBytes + HEADER_BYTES + length;
+            appendedBytes = appended;
+        }
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            sync(appended);
+        }
+        return address;
+    }
+
+    // Vue en lecture seule sur les données d'un enregistrement, sans copie
+    ByteBuffer read(long address) {
+        Segment segment = segments.get(segmentId(address));
+        int position = offset(address);
+        int length = segment.buffer.getInt(position);
+        ByteBuffer payload = segment.buffer.asReadOnlyBuffer();
+        payload.position(position + HEADER_BYTES);
+        payload.limit(position + HEADER_BYTES + length);
+        return payload;
+    }
+
+    byte typeAt(long address) {
+        return segments.get(segmentId(address)).buffer.get(offset(address) + 8);
+    }
+
+    // L'enregistrement n'est plus référencé (remplacé ou supprimé) : ses octets deviennent récupérables
+    void release(long address) {
+        Segment segment = segments.get(segmentId(address));
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-(HEADER_BYTES + segment.buffer.getInt(offset(address))));
+        }
+    }
+
+    // Plus ancien segment scellé si sa part de données vivantes est sous le seuil, sinon -1.
+    // Le compactage ne prend que le plus ancien : une suppression qu'il abandonne ne peut plus masquer
+    // une version antérieure, puisqu'il n'existe pas de segment plus ancien.
+    int oldestCompactable(double liveRatioThreshold) {
+        for (Segment segment : segments.values()) {
+            if (segment == active) {
+                return -1;
+            }
+            return segment.liveBytes.get() < liveRatioThreshold * Math.max(1, segment.end) ? segment.id : -1;
+        }
+        return -1;
+    }
+
+    void forEachRecord(int segmentId, RecordVisitor visitor) {
+        Segment segment = segments.get(segmentId);
+        scan(segment, segment.end, visitor);
+    }
+
+    // Supprime un segment dont les enregistrements vivants ont été réécrits en tête du journal
+    void deleteSegment(int segmentId) throws IOException {
+        sync();
+        Segment segment = segments.remove(segmentId);
+        if (segment != null) {
+            Files.deleteIfExists(segment.file);
+        }
+    }
+
+    void sync() {
+        sync(appendedBytes);
+    }
+
+    // Commit de groupe : un seul msync couvre tout ce qui a été ajouté avant lui
+    private void sync(long upTo) {
+        if (syncedBytes >= upTo) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedBytes >= upTo) {
+                return;
+            }
+            long target;
+            Segment segment;
+            synchronized (this) {
+                target = appendedBytes;
+                segment = active;
+            }
+            segment.buffer.force();
+            syncedBytes = target;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LoggerUtil.logError("Erreur lors de la synchronisation du journal de stockage", e);
+        }
+    }
+
+    void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        sync();
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    String getStatistics() {
+        long used = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            used += segment.end;
+            live += segment.liveBytes.get();
+        }
+        return String.format("Journal de stockage: %d segments - %.1f Mo écrits - %.1f Mo vivants - fsync %s",
+                segments.size(), used / (1024.0 * 1024.0), live / (1024.0 * 1024.0), syncPolicy);
+    }
+
+    // Appelé sous le verrou du journal : le segment plein est forcé sur disque avant d'être scellé
+    private void roll() {
+        active.buffer.force();
+        try {
+            active = createSegment(active.id + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible de créer un segment du journal de stockage", e);
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path file = directory.resolve(String.format("%010d%s", id, SUFFIX));
+        Segment segment = map(id, file);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment map(int id, Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < segmentBytes) {
+                raf.setLength(segmentBytes);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            return new Segment(id, file, buffer);
+        }
+    }
+
+    private void openExistingSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()));
+            Segment segment = map(id, file);
+            segment.end = scan(segment, segmentBytes, null);
+            segments.put(id, segment);
+            active = segment;
+        }
+        if (active != null) {
+            // Fin interrompue par un arrêt brutal : remise à zéro pour qu'aucun reste d'écriture partielle
+            // ne soit pris pour un enregistrement après les prochains ajouts
+            for (int i = active.end; i < segmentBytes; i++) {
+                if (active.buffer.get(i) != 0) {
+                    active.buffer.put(i, (byte) 0);
+                }
+            }
+        }
+    }
+
+    // Parcourt les enregistrements valides jusqu'à limit et renvoie la fin du dernier
+    private int scan(Segment segment, int limit, RecordVisitor visitor) {
+        int position = 0;
+        ByteBuffer buffer = segment.buffer.asReadOnlyBuffer();
+        while (position + HEADER_BYTES <= limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > limit) {
+                break;
+            }
+            int crc = buffer.getInt(position + 4);
+            byte type = buffer.get(position + 8);
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(position + HEADER_BYTES);
+            payload.limit(position + HEADER_BYTES + length);
+            if (checksum(type, payload) != crc) {
+                LoggerUtil.logWarning("Enregistrement corrompu dans " + segment.file + " à la position " + position);
+                break;
+            }
+            if (visitor == null) {
+                segment.liveBytes.addAndGet(HEADER_BYTES + length);
+            } else {
+                visitor.visit(type, address(segment.id, position), payload);
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static int checksum(byte type, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static long address(int segmentId, int position) {
+        return ((long) segmentId << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    private static int segmentId(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
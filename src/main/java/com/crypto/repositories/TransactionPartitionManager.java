@@ -0,0 +1,229 @@
+package main.java.com.crypto.repositories;
+
+import main.java.com.crypto.utils.LoggerUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Partitions de la table transactions, par mois de creation_date (transactions_pAAAA_MM, plus une partition
+// DEFAULT pour les dates hors plage), et archivage des transactions terminées vers transactions_archive,
+// partitionnée par année. Les requêtes chaudes ne lisent que transactions; l'historique complet passe par
+// la vue transaction_history.
+// La clé primaire (id, creation_date), imposée par le partitionnement, ne garantit plus l'unicité de id seul
+// (ids UUID aléatoires générés par l'application), et une recherche par id sans creation_date sonde l'index
+// de chaque partition faute d'élagage.
+public class TransactionPartitionManager {
+    private static TransactionPartitionManager instance;
+    private DatabaseConnection dbConnection;
+
+    private static final String COLUMNS = "id, source_address, destination_address, amount, fees, " +
+            "creation_date, fee_level, status, crypto_type, wallet_id, confirmed_at";
+    private static final Pattern HOT_PARTITION = Pattern.compile("transactions_p(\\d{4})_(\\d{2})");
+    // Seules les transactions terminées quittent les partitions chaudes : une transaction en attente peut encore changer
+    private static final String SETTLED = "status IN ('CONFIRMED', 'REJECTED')";
+
+    private TransactionPartitionManager() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    public static synchronized TransactionPartitionManager getInstance() {
+        if (instance == null) {
+            instance = new TransactionPartitionManager();
+        }
+        return instance;
+    }
+
+    // Une table créée avant le partitionnement reste une table simple : voir sql/migrate_transactions_partitioned.sql
+    public boolean isPartitioned() {
+        String sql = "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass('transactions')";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            return rs.next() && rs.getBoolean(1);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la vérification du partitionnement des transactions", e);
+        }
+        return false;
+    }
+
+    // Au premier démarrage, crée aussi les mois passés pour que les données de démonstration ne tombent pas
+    // dans la partition DEFAULT; ensuite seuls le mois courant et les suivants sont créés, pour ne pas
+    // recréer les partitions vidées par l'archivage.
+    public void initialize(int monthsBack, int monthsAhead) {
+        if (!isPartitioned()) {
+            LoggerUtil.logWarning("Table transactions non partitionnée : exécuter sql/migrate_transactions_partitioned.sql");
+            return;
+        }
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS transactions_default PARTITION OF transactions DEFAULT");
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la création de la partition par défaut des transactions", e);
+        }
+        YearMonth current = YearMonth.now();
+        YearMonth from = listHotPartitions().isEmpty() ? current.minusMonths(monthsBack) : current;
+        int created = ensureHotPartitions(from, current.plusMonths(monthsAhead));
+        if (created > 0) {
+            LoggerUtil.logInfo(created + " partitions mensuelles de transactions créées");
+        }
+    }
+
+    // Renvoie le nombre de partitions créées, -1 en cas d'erreur
+    public int ensureHotPartitions(YearMonth from, YearMonth to) {
+        List<String> existing = listHotPartitions();
+        int created = 0;
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                String name = hotPartitionName(month);
+                if (existing.contains(name)) {
+                    continue;
+                }
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF transactions " +
+                        "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+                created++;
+            }
+            return created;
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la création des partitions de transactions", e);
+        }
+        return -1;
+    }
+
+    // Déplace par lots les transactions terminées créées avant cutoff; chaque lot est validé seul pour ne pas
+    // garder de verrous longtemps. Une ligne déjà présente dans l'archive (copie manuelle, reprise partielle)
+    // fait échouer son lot, annulé en entier : la supprimer des partitions chaudes sans l'insérer la perdrait
+    // et fausserait wallet_stats. Renvoie le nombre de lignes archivées, -1 en cas d'erreur.
+    public long archiveSettled(LocalDateTime cutoff, int batchSize) {
+        String oldestSql = "SELECT MIN(creation_date) FROM transactions WHERE creation_date < ? AND " + SETTLED;
+        String moveSql = "WITH moved AS (" +
+                "DELETE FROM transactions WHERE (id, creation_date) IN (" +
+                "SELECT id, creation_date FROM transactions WHERE creation_date < ? AND " + SETTLED + " LIMIT ?) " +
+                "RETURNING " + COLUMNS + ") " +
+                "INSERT INTO transactions_archive (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            LocalDateTime oldest;
+            try (PreparedStatement stmt = conn.prepareStatement(oldestSql)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                ResultSet rs = stmt.executeQuery();
+                Timestamp min = rs.next() ? rs.getTimestamp(1) : null;
+                if (min == null) {
+                    return 0;
+                }
+                oldest = min.toLocalDateTime();
+            }
+            ensureArchivePartitions(conn, oldest.getYear(), cutoff.getYear());
+
+            long moved = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(moveSql)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                stmt.setInt(2, batchSize);
+                int batch;
+                do {
+                    batch = stmt.executeUpdate();
+                    moved += batch;
+                } while (batch > 0);
+            }
+            return moved;
+        } catch (SQLException e) {
+            if ("23505".equals(e.getSQLState())) {
+                LoggerUtil.logError("Archivage interrompu : transaction déjà présente dans transactions_archive, "
+                        + "lot annulé sans suppression", e);
+            } else {
+                LoggerUtil.logError("Erreur lors de l'archivage des transactions terminées", e);
+            }
+        }
+        return -1;
+    }
+
+    // Supprime les partitions mensuelles entièrement antérieures à cutoff et vidées par l'archivage.
+    // Renvoie le nombre de partitions supprimées, -1 en cas d'erreur.
+    public int dropEmptyPartitions(LocalDateTime cutoff) {
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        int dropped = 0;
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String name : listHotPartitions()) {
+                    Matcher matcher = HOT_PARTITION.matcher(name);
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                    if (!month.isBefore(cutoffMonth)) {
+                        continue;
+                    }
+                    // Le verrou empêche une insertion entre la vérification et la suppression
+                    stmt.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+                    boolean empty;
+                    try (ResultSet rs = stmt.executeQuery("SELECT NOT EXISTS (SELECT 1 FROM " + name + ")")) {
+                        empty = rs.next() && rs.getBoolean(1);
+                    }
+                    if (empty) {
+                        stmt.executeUpdate("DROP TABLE " + name);
+                        dropped++;
+                    }
+                    conn.commit();
+                }
+                return dropped;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la suppression des partitions de transactions vides", e);
+        }
+        return -1;
+    }
+
+    private void ensureArchivePartitions(Connection conn, int fromYear, int toYear) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (int year = fromYear; year <= toYear; year++) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS transactions_archive_p" + year +
+                        " PARTITION OF transactions_archive FOR VALUES FROM ('" + year + "-01-01') TO ('" +
+                        (year + 1) + "-01-01')");
+            }
+        }
+    }
+
+    // Noms des partitions mensuelles existantes (sans la partition DEFAULT)
+    private List<String> listHotPartitions() {
+        List<String> names = new ArrayList<>();
+        String sql = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass('transactions') ORDER BY c.relname";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (HOT_PARTITION.matcher(name).matches()) {
+                    names.add(name);
+                }
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la lecture des partitions de transactions", e);
+        }
+        return names;
+    }
+
+    private static String hotPartitionName(YearMonth month) {
+        return String.format("transactions_p%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -2,16 +2,28 @@ package main.java.com.crypto.repositories;
 
 import main.java.com.crypto.interfaces.ITransaction;
 import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.WalletStats;
 import main.java.com.crypto.enums.TransactionStatus;
 import main.java.com.crypto.enums.FeeLevel;
 import main.java.com.crypto.enums.CryptoType;
 import main.java.com.crypto.utils.LoggerUtil;
+import main.java.com.crypto.exceptions.InsufficientBalanceException;
+import main.java.com.crypto.exceptions.WriteRejectedException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.time.LocalDateTime;
 
+// Les lectures chaudes (statut PENDING, mises à jour de statut, ids du mempool) ne touchent que la table
+// partitionnée transactions; l'historique et les statuts terminés passent par la vue transaction_history,
+// qui y ajoute les archives (voir TransactionPartitionManager).
 public class TransactionRepository implements ITransaction {
     private static TransactionRepository instance;
     private DatabaseConnection dbConnection;
+    // Nombre de lignes envoyées par executeBatch
+    private static final int BATCH_SIZE = 1000;
+    // Lignes lues par aller-retour lors d'un parcours par curseur
+    private static final int FETCH_SIZE = 1000;
 
     private TransactionRepository() {
         this.dbConnection = DatabaseConnection.getInstance();
@@ -26,12 +38,15 @@ public class TransactionRepository implements ITransaction {
 
     @Override
     public Optional<Transaction> findById(UUID id) {
-        String sql = "SELECT * FROM transactions WHERE id = ?";
+        // Les archives ne sont lues que si la transaction n'est plus dans les partitions chaudes
+        String sql = "(SELECT * FROM transactions WHERE id = ?) " +
+                "UNION ALL (SELECT * FROM transactions_archive WHERE id = ?) LIMIT 1";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setObject(1, id);
+            stmt.setObject(2, id);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
@@ -46,7 +61,7 @@ public class TransactionRepository implements ITransaction {
     @Override
     public List<Transaction> findAll() {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions ORDER BY creation_date DESC";
+        String sql = "SELECT * FROM transaction_history ORDER BY creation_date DESC";
 
         try (Connection conn = dbConnection.getConnection();
              Statement stmt = conn.createStatement();
@@ -61,19 +76,17 @@ public class TransactionRepository implements ITransaction {
         return transactions;
     }
 
+    // Insertion ou mise à jour en un seul aller-retour; xmax = 0 signale une ligne nouvellement insérée
     @Override
     public Transaction save(Transaction transaction) {
-        if (findById(transaction.getId()).isPresent()) {
-            return update(transaction);
-        } else {
-            return insert(transaction);
-        }
-    }
-
-    private Transaction insert(Transaction transaction) {
         String sql = "INSERT INTO transactions (id, source_address, destination_address, amount, fees, " +
                 "creation_date, fee_level, status, crypto_type, wallet_id) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (id, creation_date) DO UPDATE SET source_address = EXCLUDED.source_address, " +
+                "destination_address = EXCLUDED.destination_address, amount = EXCLUDED.amount, " +
+                "fees = EXCLUDED.fees, fee_level = EXCLUDED.fee_level, " +
+                "status = EXCLUDED.status, crypto_type = EXCLUDED.crypto_type, wallet_id = EXCLUDED.wallet_id " +
+                "RETURNING (xmax = 0) AS inserted";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -89,56 +102,191 @@ public class TransactionRepository implements ITransaction {
             stmt.setString(9, transaction.getCryptoType().name());
             stmt.setObject(10, transaction.getWalletId());
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                LoggerUtil.logInfo("Transaction insérée avec succès: " + transaction.getId());
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                LoggerUtil.logInfo((rs.getBoolean("inserted") ? "Transaction insérée avec succès: "
+                        : "Transaction mise à jour avec succès: ") + transaction.getId());
                 return transaction;
             }
         } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de l'insertion de la transaction: " + transaction.getId(), e);
+            LoggerUtil.logError("Erreur lors de l'enregistrement de la transaction: " + transaction.getId(), e);
+        }
+        return null;
+    }
+
+    // Débit conditionnel du wallet et insertion de la transaction dans une seule transaction SQL.
+    // Le solde est vérifié par la base, ce qui rend sûrs les envois concurrents depuis un même wallet.
+    // Renvoie le nouveau solde, vide en cas d'erreur; lève InsufficientBalanceException si le solde ne suffit pas.
+    @Override
+    public OptionalDouble saveAndDebit(Transaction transaction, double totalAmount) {
+        String debitSql = "UPDATE wallets SET balance = balance - ?, version = version + 1 " +
+                "WHERE id = ? AND balance >= ? RETURNING balance";
+        String insertSql = "INSERT INTO transactions (id, source_address, destination_address, amount, fees, " +
+                "creation_date, fee_level, status, crypto_type, wallet_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement debit = conn.prepareStatement(debitSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+
+                debit.setDouble(1, totalAmount);
+                debit.setObject(2, transaction.getWalletId());
+                debit.setDouble(3, totalAmount);
+                ResultSet rs = debit.executeQuery();
+                if (!rs.next()) {
+                    conn.rollback();
+                    throw new InsufficientBalanceException("Solde insuffisant pour envoyer " + totalAmount);
+                }
+                double newBalance = rs.getDouble("balance");
+
+                insert.setObject(1, transaction.getId());
+                insert.setString(2, transaction.getSourceAddress());
+                insert.setString(3, transaction.getDestinationAddress());
+                insert.setDouble(4, transaction.getAmount());
+                insert.setDouble(5, transaction.getFees());
+                insert.setTimestamp(6, Timestamp.valueOf(transaction.getCreationDate()));
+                insert.setString(7, transaction.getFeeLevel().name());
+                insert.setString(8, transaction.getStatus().name());
+                insert.setString(9, transaction.getCryptoType().name());
+                insert.setObject(10, transaction.getWalletId());
+                insert.executeUpdate();
+
+                conn.commit();
+                LoggerUtil.logInfo("Transaction insérée et wallet débité: " + transaction.getId());
+                return OptionalDouble.of(newBalance);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de l'enregistrement avec débit de la transaction: " + transaction.getId(), e);
+        }
+        return OptionalDouble.empty();
+    }
+
+    // Écriture groupée de l'écriture différée, validée en un seul commit. Chaque ligne débite son wallet si le
+    // solde suffit encore (une autre instance a pu le débiter depuis la soumission) puis insère la transaction,
+    // REJECTED quand le débit n'a pas eu lieu. Rejouable : une transaction déjà présente n'est ni réinsérée ni
+    // redébitée. Renvoie les ids écrits REJECTED faute de solde, null si la base n'a pas répondu (lot à
+    // réessayer). Lève WriteRejectedException si une ligne viole une contrainte : le même lot échouerait encore.
+    @Override
+    public Set<UUID> saveAllAndDebit(List<Transaction> transactions, double[] debits) {
+        Set<UUID> refused = new HashSet<>();
+        if (transactions.isEmpty()) {
+            return refused;
+        }
+        String sql = "WITH debited AS (" +
+                "UPDATE wallets SET balance = balance - ?, version = version + 1 " +
+                "WHERE id = ? AND balance >= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM transactions WHERE id = ? AND creation_date = ?) RETURNING id) " +
+                "INSERT INTO transactions (id, source_address, destination_address, amount, fees, " +
+                "creation_date, fee_level, status, crypto_type, wallet_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, CASE WHEN EXISTS (SELECT 1 FROM debited) THEN ? ELSE 'REJECTED' END, ?, ?) " +
+                "ON CONFLICT (id, creation_date) DO NOTHING";
+        String refusedSql = "SELECT id FROM transactions WHERE id = ANY(?) AND status = 'REJECTED'";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 PreparedStatement check = conn.prepareStatement(refusedSql)) {
+                List<UUID> debitedIds = new ArrayList<>(transactions.size());
+                for (int i = 0; i < transactions.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    Timestamp creationDate = Timestamp.valueOf(transaction.getCreationDate());
+                    stmt.setDouble(1, debits[i]);
+                    stmt.setObject(2, transaction.getWalletId());
+                    stmt.setDouble(3, debits[i]);
+                    stmt.setObject(4, transaction.getId());
+                    stmt.setTimestamp(5, creationDate);
+                    stmt.setObject(6, transaction.getId());
+                    stmt.setString(7, transaction.getSourceAddress());
+                    stmt.setString(8, transaction.getDestinationAddress());
+                    stmt.setDouble(9, transaction.getAmount());
+                    stmt.setDouble(10, transaction.getFees());
+                    stmt.setTimestamp(11, creationDate);
+                    stmt.setString(12, transaction.getFeeLevel().name());
+                    stmt.setString(13, transaction.getStatus().name());
+                    stmt.setString(14, transaction.getCryptoType().name());
+                    stmt.setObject(15, transaction.getWalletId());
+                    stmt.addBatch();
+                    if (transaction.getStatus() != TransactionStatus.REJECTED) {
+                        debitedIds.add(transaction.getId());
+                    }
+                }
+                stmt.executeBatch();
+
+                if (!debitedIds.isEmpty()) {
+                    check.setArray(1, conn.createArrayOf("uuid", debitedIds.toArray()));
+                    ResultSet rs = check.executeQuery();
+                    while (rs.next()) {
+                        refused.add((UUID) rs.getObject("id"));
+                    }
+                }
+                conn.commit();
+                return refused;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (isDataError(e)) {
+                LoggerUtil.logError("Lot de " + transactions.size() + " transactions différées refusé par la base", e);
+                throw new WriteRejectedException("Lot refusé par la base: " + e.getMessage(), e);
+            }
+            LoggerUtil.logError("Erreur lors de l'écriture groupée de " + transactions.size() + " transactions différées", e);
         }
         return null;
     }
 
-    private Transaction update(Transaction transaction) {
-        String sql = "UPDATE transactions SET source_address = ?, destination_address = ?, amount = ?, " +
-                "fees = ?, creation_date = ?, fee_level = ?, status = ?, crypto_type = ?, wallet_id = ? " +
+    // Classes SQLSTATE 22 (donnée invalide) et 23 (contrainte violée, par exemple un wallet supprimé entre-temps) :
+    // erreurs propres aux lignes, qu'aucune nouvelle tentative ne corrige. Les autres (connexion perdue, conflit
+    // de sérialisation, base arrêtée...) sont passagères. Dans un lot, la cause est sur l'exception chaînée.
+    private static boolean isDataError(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            String state = current.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ne touche que le statut (et la date de confirmation), la date de création est conservée.
+    // Partitions chaudes seulement : une transaction archivée est terminée.
+    @Override
+    public boolean updateStatus(UUID id, TransactionStatus status) {
+        String sql = "UPDATE transactions SET status = ?, " +
+                "confirmed_at = CASE WHEN ? THEN CURRENT_TIMESTAMP ELSE confirmed_at END " +
                 "WHERE id = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, transaction.getSourceAddress());
-            stmt.setString(2, transaction.getDestinationAddress());
-            stmt.setDouble(3, transaction.getAmount());
-            stmt.setDouble(4, transaction.getFees());
-            stmt.setTimestamp(5, Timestamp.valueOf(transaction.getCreationDate()));
-            stmt.setString(6, transaction.getFeeLevel().name());
-            stmt.setString(7, transaction.getStatus().name());
-            stmt.setString(8, transaction.getCryptoType().name());
-            stmt.setObject(9, transaction.getWalletId());
-            stmt.setObject(10, transaction.getId());
+            stmt.setString(1, status.name());
+            stmt.setBoolean(2, status == TransactionStatus.CONFIRMED);
+            stmt.setObject(3, id);
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                LoggerUtil.logInfo("Transaction mise à jour avec succès: " + transaction.getId());
-                return transaction;
-            }
+            return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de la mise à jour de la transaction: " + transaction.getId(), e);
+            LoggerUtil.logError("Erreur lors de la mise à jour du statut de la transaction: " + id, e);
         }
-        return null;
+        return false;
     }
 
     @Override
     public void deleteById(UUID id) {
-        String sql = "DELETE FROM transactions WHERE id = ?";
+        String sql = "WITH hot AS (DELETE FROM transactions WHERE id = ? RETURNING id), " +
+                "archived AS (DELETE FROM transactions_archive WHERE id = ? RETURNING id) " +
+                "SELECT (SELECT COUNT(*) FROM hot) + (SELECT COUNT(*) FROM archived)";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setObject(1, id);
-            int affectedRows = stmt.executeUpdate();
+            stmt.setObject(2, id);
+            ResultSet rs = stmt.executeQuery();
+            int affectedRows = rs.next() ? rs.getInt(1) : 0;
 
             if (affectedRows > 0) {
                 LoggerUtil.logInfo("Transaction supprimée avec succès: " + id);
@@ -148,10 +296,139 @@ public class TransactionRepository implements ITransaction {
         }
     }
 
+    // Enregistrement groupé dans une seule transaction (tout ou rien); renvoie -1 en cas d'erreur
+    @Override
+    public int saveAll(Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO transactions (id, source_address, destination_address, amount, fees, " +
+                "creation_date, fee_level, status, crypto_type, wallet_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (id, creation_date) DO UPDATE SET source_address = EXCLUDED.source_address, " +
+                "destination_address = EXCLUDED.destination_address, amount = EXCLUDED.amount, " +
+                "fees = EXCLUDED.fees, fee_level = EXCLUDED.fee_level, " +
+                "status = EXCLUDED.status, crypto_type = EXCLUDED.crypto_type, wallet_id = EXCLUDED.wallet_id";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                for (Transaction transaction : transactions) {
+                    stmt.setObject(1, transaction.getId());
+                    stmt.setString(2, transaction.getSourceAddress());
+                    stmt.setString(3, transaction.getDestinationAddress());
+                    stmt.setDouble(4, transaction.getAmount());
+                    stmt.setDouble(5, transaction.getFees());
+                    stmt.setTimestamp(6, Timestamp.valueOf(transaction.getCreationDate()));
+                    stmt.setString(7, transaction.getFeeLevel().name());
+                    stmt.setString(8, transaction.getStatus().name());
+                    stmt.setString(9, transaction.getCryptoType().name());
+                    stmt.setObject(10, transaction.getWalletId());
+                    stmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+                LoggerUtil.logInfo(transactions.size() + " transactions enregistrées par lot");
+                return transactions.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de l'enregistrement groupé de " + transactions.size() + " transactions", e);
+        }
+        return -1;
+    }
+
+    // Mise à jour groupée du statut en un seul aller-retour; renvoie -1 en cas d'erreur
+    @Override
+    public int updateStatusAll(Collection<UUID> ids, TransactionStatus status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE transactions SET status = ?, " +
+                "confirmed_at = CASE WHEN ? THEN CURRENT_TIMESTAMP ELSE confirmed_at END " +
+                "WHERE id = ANY(?)";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, status.name());
+            stmt.setBoolean(2, status == TransactionStatus.CONFIRMED);
+            stmt.setArray(3, conn.createArrayOf("uuid", ids.toArray()));
+
+            int affectedRows = stmt.executeUpdate();
+            LoggerUtil.logInfo(affectedRows + " transactions mises à jour au statut " + status.name());
+            return affectedRows;
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la mise à jour groupée du statut: " + status.name(), e);
+        }
+        return -1;
+    }
+
+    // Rejet sans confirmation (éviction, expiration) : les transactions encore PENDING passent REJECTED et leur
+    // débit (montant + frais) est rendu au wallet, un UPDATE groupé par wallet, dans la même transaction SQL.
+    // Une transaction déjà terminée n'est ni rejetée ni remboursée : rejouer l'appel est sans effet.
+    // Renvoie le montant remboursé par wallet, null en cas d'erreur.
+    @Override
+    public Map<UUID, Double> rejectAndRefund(Collection<UUID> ids) {
+        // Wallets remboursés dans l'ordre de leur id : deux remboursements concurrents sur des wallets communs
+        // prennent leurs verrous de ligne dans le même ordre et ne peuvent pas s'interbloquer
+        Map<UUID, Double> refunds = new TreeMap<>();
+        if (ids.isEmpty()) {
+            return refunds;
+        }
+        String rejectSql = "UPDATE transactions SET status = 'REJECTED' " +
+                "WHERE id = ANY(?) AND status = 'PENDING' RETURNING wallet_id, amount + fees AS refund";
+        String refundSql = "UPDATE wallets SET balance = balance + ?, version = version + 1 WHERE id = ?";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement reject = conn.prepareStatement(rejectSql);
+                 PreparedStatement refund = conn.prepareStatement(refundSql)) {
+
+                reject.setArray(1, conn.createArrayOf("uuid", ids.toArray()));
+                ResultSet rs = reject.executeQuery();
+                int rejected = 0;
+                while (rs.next()) {
+                    rejected++;
+                    UUID walletId = (UUID) rs.getObject("wallet_id");
+                    if (walletId != null) {
+                        refunds.merge(walletId, rs.getDouble("refund"), Double::sum);
+                    }
+                }
+                for (Map.Entry<UUID, Double> entry : refunds.entrySet()) {
+                    refund.setDouble(1, entry.getValue());
+                    refund.setObject(2, entry.getKey());
+                    refund.addBatch();
+                }
+                if (!refunds.isEmpty()) {
+                    refund.executeBatch();
+                }
+                conn.commit();
+                LoggerUtil.logInfo(rejected + " transactions rejetées, " + refunds.size() + " wallets remboursés");
+                return refunds;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors du rejet avec remboursement de " + ids.size() + " transactions", e);
+        }
+        return null;
+    }
+
     @Override
     public List<Transaction> findByWalletId(UUID walletId) {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions WHERE wallet_id = ? ORDER BY creation_date DESC";
+        String sql = "SELECT * FROM transaction_history WHERE wallet_id = ? ORDER BY creation_date DESC";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -171,7 +448,7 @@ public class TransactionRepository implements ITransaction {
     @Override
     public List<Transaction> findByStatus(String status) {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions WHERE status = ? ORDER BY creation_date DESC";
+        String sql = "SELECT * FROM " + tableForStatus(status) + " WHERE status = ? ORDER BY creation_date DESC";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -188,10 +465,186 @@ public class TransactionRepository implements ITransaction {
         return transactions;
     }
 
+    // Une page de l'historique, de la plus récente à la plus ancienne. La page suivante commence
+    // strictement après (beforeDate, beforeId), la dernière ligne reçue; null pour la première page.
+    // Servie par l'index (wallet_id, creation_date DESC, id DESC) sans OFFSET.
+    @Override
+    public List<Transaction> findPageByWalletId(UUID walletId, LocalDateTime beforeDate, UUID beforeId, int limit) {
+        List<Transaction> transactions = new ArrayList<>();
+        boolean firstPage = beforeDate == null || beforeId == null;
+        String sql = "SELECT * FROM transaction_history WHERE wallet_id = ? " +
+                (firstPage ? "" : "AND (creation_date, id) < (?, ?) ") +
+                "ORDER BY creation_date DESC, id DESC LIMIT ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            stmt.setObject(index++, walletId);
+            if (!firstPage) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(beforeDate));
+                stmt.setObject(index++, beforeId);
+            }
+            stmt.setInt(index, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                transactions.add(mapResultSetToTransaction(rs));
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la lecture d'une page de transactions du wallet: " + walletId, e);
+        }
+        return transactions;
+    }
+
+    // Lu dans wallet_stats plutôt que compté; -1 en cas d'erreur
+    @Override
+    public int countByWalletId(UUID walletId) {
+        return findStatsByWalletId(walletId).map(stats -> (int) stats.getTransactionCount()).orElse(-1);
+    }
+
+    // Une lecture par clé primaire : wallet_stats est tenue à jour par trigger dans la transaction de chaque
+    // insertion, changement de statut, suppression ou archivage. Pas de ligne : le wallet n'a aucune transaction.
+    @Override
+    public Optional<WalletStats> findStatsByWalletId(UUID walletId) {
+        String sql = "SELECT * FROM wallet_stats WHERE wallet_id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, walletId);
+            ResultSet rs = stmt.executeQuery();
+            WalletStats stats = new WalletStats(walletId);
+            if (rs.next()) {
+                stats.setTransactionCount(rs.getLong("transaction_count"));
+                stats.setPendingCount(rs.getLong("pending_count"));
+                stats.setTotalSent(rs.getDouble("total_sent"));
+                stats.setTotalFees(rs.getDouble("total_fees"));
+                Timestamp lastActivity = rs.getTimestamp("last_activity");
+                stats.setLastActivity(lastActivity == null ? null : lastActivity.toLocalDateTime());
+            }
+            return Optional.of(stats);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la lecture du résumé du wallet: " + walletId, e);
+        }
+        return Optional.empty();
+    }
+
+    // Parcours de tout l'historique sans le charger en mémoire; renvoie le nombre de lignes lues, -1 en cas d'erreur
+    @Override
+    public long forEachByWalletId(UUID walletId, Consumer<Transaction> consumer) {
+        String sql = "SELECT * FROM transaction_history WHERE wallet_id = ? ORDER BY creation_date DESC, id DESC";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, walletId);
+            return forEachRow(conn, stmt, consumer);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors du parcours des transactions du wallet: " + walletId, e);
+        }
+        return -1;
+    }
+
+    @Override
+    public long forEachByStatus(TransactionStatus status, Consumer<Transaction> consumer) {
+        String sql = "SELECT * FROM " + tableForStatus(status.name()) + " WHERE status = ? ORDER BY creation_date DESC";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, status.name());
+            return forEachRow(conn, stmt, consumer);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors du parcours des transactions par statut: " + status, e);
+        }
+        return -1;
+    }
+
+    public long forEach(Consumer<Transaction> consumer) {
+        String sql = "SELECT * FROM transaction_history ORDER BY creation_date DESC";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            return forEachRow(conn, stmt, consumer);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors du parcours des transactions", e);
+        }
+        return -1;
+    }
+
+    // Le pilote PostgreSQL n'utilise un curseur (fetchSize lignes à la fois) qu'hors autocommit;
+    // le pool annule cette transaction en lecture seule quand la connexion lui est rendue.
+    private long forEachRow(Connection conn, PreparedStatement stmt, Consumer<Transaction> consumer) throws SQLException {
+        conn.setAutoCommit(false);
+        stmt.setFetchSize(FETCH_SIZE);
+        long count = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                consumer.accept(mapResultSetToTransaction(rs));
+                count++;
+            }
+        }
+        return count;
+    }
+
     public List<Transaction> findByStatus(TransactionStatus status) {
         return findByStatus(status.name());
     }
 
+    // Ids seuls, sans matérialiser les transactions; null en cas d'erreur
+    @Override
+    public Set<UUID> findIdsByStatus(TransactionStatus status) {
+        Set<UUID> ids = new HashSet<>();
+        String sql = "SELECT id FROM " + tableForStatus(status.name()) + " WHERE status = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setFetchSize(10000);
+            stmt.setString(1, status.name());
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                ids.add((UUID) rs.getObject(1));
+            }
+            return ids;
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la recherche des ids par statut: " + status, e);
+        }
+        return null;
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<UUID> ids) {
+        List<Transaction> transactions = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return transactions;
+        }
+        // Ids du mempool : transactions en attente, jamais archivées
+        String sql = "SELECT * FROM transactions WHERE id = ANY(?) ORDER BY creation_date";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("uuid", ids.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                transactions.add(mapResultSetToTransaction(rs));
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la recherche des transactions par ids", e);
+        }
+        return transactions;
+    }
+
+    // Une transaction en attente n'est jamais archivée : seules les autres requêtes ont besoin des archives
+    private static String tableForStatus(String status) {
+        return TransactionStatus.PENDING.name().equalsIgnoreCase(status) ? "transactions" : "transaction_history";
+    }
+
     private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
         Transaction transaction = new Transaction();
 
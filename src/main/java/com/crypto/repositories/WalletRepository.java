@@ -4,6 +4,7 @@ import main.java.com.crypto.interfaces.IWallet;
 import main.java.com.crypto.models.Wallet;
 import main.java.com.crypto.models.BitcoinWallet;
 import main.java.com.crypto.models.EthereumWallet;
+import main.java.com.crypto.config.DatabaseConfig;
 import main.java.com.crypto.enums.CryptoType;
 import main.java.com.crypto.utils.LoggerUtil;
 import java.sql.*;
@@ -12,6 +13,8 @@ import java.util.*;
 public class WalletRepository implements IWallet {
     private static WalletRepository instance;
     private DatabaseConnection dbConnection;
+    // Nombre de lignes envoyées par executeBatch
+    private static final int BATCH_SIZE = 1000;
 
     private WalletRepository() {
         this.dbConnection = DatabaseConnection.getInstance();
@@ -62,17 +65,13 @@ public class WalletRepository implements IWallet {
         return wallets;
     }
 
+    // Insertion ou mise à jour en un seul aller-retour; xmax = 0 signale une ligne nouvellement insérée
     @Override
     public Wallet save(Wallet wallet) {
-        if (findById(wallet.getId()).isPresent()) {
-            return update(wallet);
-        } else {
-            return insert(wallet);
-        }
-    }
-
-    private Wallet insert(Wallet wallet) {
-        String sql = "INSERT INTO wallets (id, address, balance, crypto_type) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO wallets (id, address, balance, crypto_type) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET address = EXCLUDED.address, balance = EXCLUDED.balance, " +
+                "crypto_type = EXCLUDED.crypto_type, version = wallets.version + 1 " +
+                "RETURNING (xmax = 0) AS inserted, version";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -82,37 +81,142 @@ public class WalletRepository implements IWallet {
             stmt.setDouble(3, wallet.getBalance());
             stmt.setString(4, wallet.getCryptoType().name());
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                LoggerUtil.logInfo("Wallet inséré avec succès: " + wallet.getId());
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                wallet.setVersion(rs.getLong("version"));
+                LoggerUtil.logInfo((rs.getBoolean("inserted") ? "Wallet inséré avec succès: "
+                        : "Wallet mis à jour avec succès: ") + wallet.getId());
                 return wallet;
             }
         } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de l'insertion du wallet: " + wallet.getId(), e);
+            LoggerUtil.logError("Erreur lors de l'enregistrement du wallet: " + wallet.getId(), e);
         }
         return null;
     }
 
-    private Wallet update(Wallet wallet) {
-        String sql = "UPDATE wallets SET address = ?, balance = ?, crypto_type = ? WHERE id = ?";
+    @Override
+    public boolean updateBalance(UUID id, double balance) {
+        String sql = "UPDATE wallets SET balance = ?, version = version + 1 WHERE id = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, wallet.getAddress());
-            stmt.setDouble(2, wallet.getBalance());
-            stmt.setString(3, wallet.getCryptoType().name());
-            stmt.setObject(4, wallet.getId());
+            stmt.setDouble(1, balance);
+            stmt.setObject(2, id);
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                LoggerUtil.logInfo("Wallet mis à jour avec succès: " + wallet.getId());
-                return wallet;
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la mise à jour du solde du wallet: " + id, e);
+        }
+        return false;
+    }
+
+    // Compare-and-set sur la version : aucun verrou de ligne n'est gardé entre la lecture et cette écriture
+    @Override
+    public boolean updateBalanceIfVersion(UUID id, long expectedVersion, double balance) {
+        String sql = "UPDATE wallets SET balance = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDouble(1, balance);
+            stmt.setObject(2, id);
+            stmt.setLong(3, expectedVersion);
+
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la mise à jour conditionnelle du solde du wallet: " + id, e);
+        }
+        return false;
+    }
+
+    // Enregistrement groupé dans une seule transaction (tout ou rien); renvoie -1 en cas d'erreur
+    @Override
+    public int saveAll(Collection<Wallet> wallets) {
+        if (wallets.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO wallets (id, address, balance, crypto_type) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET address = EXCLUDED.address, balance = EXCLUDED.balance, " +
+                "crypto_type = EXCLUDED.crypto_type, version = wallets.version + 1";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                for (Wallet wallet : wallets) {
+                    stmt.setObject(1, wallet.getId());
+                    stmt.setString(2, wallet.getAddress());
+                    stmt.setDouble(3, wallet.getBalance());
+                    stmt.setString(4, wallet.getCryptoType().name());
+                    stmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+                LoggerUtil.logInfo(wallets.size() + " wallets enregistrés par lot");
+                return wallets.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            LoggerUtil.logError("Erreur lors de la mise à jour du wallet: " + wallet.getId(), e);
+            LoggerUtil.logError("Erreur lors de l'enregistrement groupé de " + wallets.size() + " wallets", e);
         }
-        return null;
+        return -1;
+    }
+
+    // Mise à jour groupée des soldes dans une seule transaction; renvoie le nombre de wallets mis à jour, -1 en cas d'erreur
+    @Override
+    public int updateBalanceAll(Map<UUID, Double> balances) {
+        if (balances.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE wallets SET balance = ?, version = version + 1 WHERE id = ?";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int updated = 0;
+                int pending = 0;
+                for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                    stmt.setDouble(1, entry.getValue());
+                    stmt.setObject(2, entry.getKey());
+                    stmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        updated += countUpdated(stmt.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    updated += countUpdated(stmt.executeBatch());
+                }
+                conn.commit();
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logError("Erreur lors de la mise à jour groupée de " + balances.size() + " soldes", e);
+        }
+        return -1;
+    }
+
+    // Lignes touchées d'un batch (SUCCESS_NO_INFO compté comme une ligne)
+    static int countUpdated(int[] results) {
+        int count = 0;
+        for (int result : results) {
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                count++;
+            }
+        }
+        return count;
     }
 
     @Override
@@ -153,24 +257,34 @@ public class WalletRepository implements IWallet {
     }
 
     private Wallet mapResultSetToWallet(ResultSet rs) throws SQLException {
-        CryptoType cryptoType = CryptoType.valueOf(rs.getString("crypto_type"));
-        Wallet wallet;
+        Wallet wallet = newWallet(CryptoType.valueOf(rs.getString("crypto_type")));
+
+        wallet.setId((UUID) rs.getObject("id"));
+        wallet.setAddress(rs.getString("address"));
+        wallet.setBalance(rs.getDouble("balance"));
+        wallet.setVersion(rs.getLong("version"));
+
+        return wallet;
+    }
 
+    // Wallet vide du bon type, que l'appelant remplit avec les valeurs stockées
+    static Wallet newWallet(CryptoType cryptoType) {
         switch (cryptoType) {
             case BITCOIN:
-                wallet = new BitcoinWallet();
-                break;
+                return new BitcoinWallet();
             case ETHEREUM:
-                wallet = new EthereumWallet();
-                break;
+                return new EthereumWallet();
             default:
                 throw new IllegalArgumentException("Type de crypto non supporté: " + cryptoType);
         }
+    }
 
-        wallet.setId((UUID) rs.getObject("id"));
-        wallet.setAddress(rs.getString("address"));
-        wallet.setBalance(rs.getDouble("balance"));
-
+    static Wallet copyOf(Wallet source) {
+        Wallet wallet = newWallet(source.getCryptoType());
+        wallet.setId(source.getId());
+        wallet.setAddress(source.getAddress());
+        wallet.setBalance(source.getBalance());
+        wallet.setVersion(source.getVersion());
         return wallet;
     }
 
@@ -185,10 +299,30 @@ public class WalletRepository implements IWallet {
                         "address VARCHAR(255) NOT NULL UNIQUE, " +
                         "balance DOUBLE PRECISION NOT NULL DEFAULT 0.0, " +
                         "crypto_type VARCHAR(20) NOT NULL, " +
+                        "version BIGINT NOT NULL DEFAULT 0, " +
                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
 
+                // Tables créées avant les mises à jour optimistes
+                "ALTER TABLE wallets ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0",
+
+                // Partitionnée par mois de création : la clé primaire doit contenir la clé de partition
                 "CREATE TABLE IF NOT EXISTS transactions (" +
-                        "id UUID PRIMARY KEY, " +
+                        "id UUID NOT NULL, " +
+                        "source_address VARCHAR(255) NOT NULL, " +
+                        "destination_address VARCHAR(255) NOT NULL, " +
+                        "amount DOUBLE PRECISION NOT NULL, " +
+                        "fees DOUBLE PRECISION NOT NULL, " +
+                        "creation_date TIMESTAMP NOT NULL, " +
+                        "fee_level VARCHAR(20) NOT NULL, " +
+                        "status VARCHAR(20) NOT NULL, " +
+                        "crypto_type VARCHAR(20) NOT NULL, " +
+                        "wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE, " +
+                        "confirmed_at TIMESTAMP NULL, " +
+                        "PRIMARY KEY (id, creation_date)) PARTITION BY RANGE (creation_date)",
+
+                // Transactions terminées déplacées par l'archivage, partitionnées par année
+                "CREATE TABLE IF NOT EXISTS transactions_archive (" +
+                        "id UUID NOT NULL, " +
                         "source_address VARCHAR(255) NOT NULL, " +
                         "destination_address VARCHAR(255) NOT NULL, " +
                         "amount DOUBLE PRECISION NOT NULL, " +
@@ -198,7 +332,20 @@ public class WalletRepository implements IWallet {
                         "status VARCHAR(20) NOT NULL, " +
                         "crypto_type VARCHAR(20) NOT NULL, " +
                         "wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE, " +
-                        "confirmed_at TIMESTAMP NULL)"
+                        "confirmed_at TIMESTAMP NULL, " +
+                        "PRIMARY KEY (id, creation_date)) PARTITION BY RANGE (creation_date)",
+                "CREATE TABLE IF NOT EXISTS transactions_archive_default PARTITION OF transactions_archive DEFAULT",
+
+                // Pagination par clé de l'historique d'un wallet
+                "CREATE INDEX IF NOT EXISTS idx_transactions_wallet_created " +
+                        "ON transactions(wallet_id, creation_date DESC, id DESC)",
+                "CREATE INDEX IF NOT EXISTS idx_transactions_status ON transactions(status)",
+                "CREATE INDEX IF NOT EXISTS idx_transactions_archive_wallet_created " +
+                        "ON transactions_archive(wallet_id, creation_date DESC, id DESC)",
+
+                // Historique complet : partitions chaudes puis archives
+                "CREATE OR REPLACE VIEW transaction_history AS " +
+                        "SELECT * FROM transactions UNION ALL SELECT * FROM transactions_archive"
         };
 
         try (Connection conn = dbConnection.getConnection();
@@ -207,10 +354,85 @@ public class WalletRepository implements IWallet {
             for (String sql : createTables) {
                 stmt.executeUpdate(sql);
             }
+            createWalletStatsIfNotExist(conn);
+            TransactionPartitionManager.getInstance().initialize(DatabaseConfig.TRANSACTION_PARTITION_MONTHS_BACK,
+                    DatabaseConfig.TRANSACTION_PARTITION_MONTHS_AHEAD);
             LoggerUtil.logInfo("Tables de la base de données initialisées avec succès");
 
         } catch (SQLException e) {
             LoggerUtil.logError("Erreur lors de l'initialisation de la base de données", e);
         }
     }
+
+    // Résumé par wallet tenu à jour par trigger sur transactions et transactions_archive : un archivage
+    // (suppression puis insertion) s'annule. Les transactions rejetées ne comptent ni dans les montants ni
+    // dans les frais; last_activity ne recule pas quand une transaction est supprimée.
+    // Créée, remplie et branchée dans une seule transaction, écrivains bloqués pendant le remplissage.
+    private void createWalletStatsIfNotExist(Connection conn) throws SQLException {
+        String[] statements = {
+                "CREATE TABLE wallet_stats (" +
+                        "wallet_id UUID PRIMARY KEY REFERENCES wallets(id) ON DELETE CASCADE, " +
+                        "transaction_count BIGINT NOT NULL DEFAULT 0, " +
+                        "pending_count BIGINT NOT NULL DEFAULT 0, " +
+                        "total_sent DOUBLE PRECISION NOT NULL DEFAULT 0.0, " +
+                        "total_fees DOUBLE PRECISION NOT NULL DEFAULT 0.0, " +
+                        "last_activity TIMESTAMP NULL)",
+
+                "CREATE OR REPLACE FUNCTION wallet_stats_apply() RETURNS trigger AS $$ " +
+                        "BEGIN " +
+                        "IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.wallet_id IS NOT NULL THEN " +
+                        "UPDATE wallet_stats SET transaction_count = transaction_count - 1, " +
+                        "pending_count = pending_count - CASE WHEN OLD.status = 'PENDING' THEN 1 ELSE 0 END, " +
+                        "total_sent = total_sent - CASE WHEN OLD.status <> 'REJECTED' THEN OLD.amount ELSE 0 END, " +
+                        "total_fees = total_fees - CASE WHEN OLD.status <> 'REJECTED' THEN OLD.fees ELSE 0 END " +
+                        "WHERE wallet_id = OLD.wallet_id; " +
+                        "END IF; " +
+                        "IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.wallet_id IS NOT NULL THEN " +
+                        "INSERT INTO wallet_stats AS s (wallet_id, transaction_count, pending_count, total_sent, total_fees, last_activity) " +
+                        "VALUES (NEW.wallet_id, 1, CASE WHEN NEW.status = 'PENDING' THEN 1 ELSE 0 END, " +
+                        "CASE WHEN NEW.status <> 'REJECTED' THEN NEW.amount ELSE 0 END, " +
+                        "CASE WHEN NEW.status <> 'REJECTED' THEN NEW.fees ELSE 0 END, NEW.creation_date) " +
+                        "ON CONFLICT (wallet_id) DO UPDATE SET transaction_count = s.transaction_count + 1, " +
+                        "pending_count = s.pending_count + EXCLUDED.pending_count, " +
+                        "total_sent = s.total_sent + EXCLUDED.total_sent, " +
+                        "total_fees = s.total_fees + EXCLUDED.total_fees, " +
+                        "last_activity = GREATEST(s.last_activity, EXCLUDED.last_activity); " +
+                        "END IF; " +
+                        "RETURN NULL; " +
+                        "END $$ LANGUAGE plpgsql",
+
+                "LOCK TABLE transactions, transactions_archive IN SHARE MODE",
+
+                "INSERT INTO wallet_stats (wallet_id, transaction_count, pending_count, total_sent, total_fees, last_activity) " +
+                        "SELECT wallet_id, COUNT(*), COUNT(*) FILTER (WHERE status = 'PENDING'), " +
+                        "COALESCE(SUM(amount) FILTER (WHERE status <> 'REJECTED'), 0), " +
+                        "COALESCE(SUM(fees) FILTER (WHERE status <> 'REJECTED'), 0), MAX(creation_date) " +
+                        "FROM transaction_history WHERE wallet_id IS NOT NULL GROUP BY wallet_id",
+
+                "CREATE TRIGGER trg_transactions_wallet_stats AFTER INSERT OR UPDATE OR DELETE ON transactions " +
+                        "FOR EACH ROW EXECUTE FUNCTION wallet_stats_apply()",
+                "CREATE TRIGGER trg_transactions_archive_wallet_stats AFTER INSERT OR UPDATE OR DELETE ON transactions_archive " +
+                        "FOR EACH ROW EXECUTE FUNCTION wallet_stats_apply()"
+        };
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT to_regclass('wallet_stats') IS NOT NULL")) {
+            if (rs.next() && rs.getBoolean(1)) {
+                return;
+            }
+        }
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+            conn.commit();
+            LoggerUtil.logInfo("Table wallet_stats créée et remplie depuis l'historique");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.models.Block;
+import main.java.com.crypto.models.Mempool;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class BlockService {
+    private static BlockService instance;
+    private ITransaction transactionRepository;
+    private Mempool mempool;
+
+    private BlockService() {
+        this.transactionRepository = RepositoryFactory.transactions();
+        this.mempool = Mempool.getInstance();
+    }
+
+    public static synchronized BlockService getInstance() {
+        if (instance == null) {
+            instance = new BlockService();
+        }
+        return instance;
+    }
+
+    // Assemble un bloc avec les meilleurs frais, retire ses transactions du mempool et les confirme en un seul appel
+    public Block mineBlock(CryptoType cryptoType) {
+        List<Transaction> selected = mempool.removeTopTransactions(
+                cryptoType,
+                this::getWeight,
+                cryptoType.getBlockCapacity()
+        );
+
+        long totalWeight = 0;
+        double totalFees = 0;
+        List<UUID> ids = new ArrayList<>(selected.size());
+        for (Transaction tx : selected) {
+            totalWeight += getWeight(tx);
+            totalFees += tx.getFees();
+            ids.add(tx.getId());
+        }
+
+        if (transactionRepository.updateStatusAll(ids, TransactionStatus.CONFIRMED) < 0) {
+            // Échec de la confirmation : les transactions restent en attente
+            for (Transaction tx : selected) {
+                mempool.addTransaction(tx);
+            }
+            LoggerUtil.logError("Échec de la confirmation du bloc " + cryptoType + ", transactions remises dans le mempool");
+            return null;
+        }
+
+        for (Transaction tx : selected) {
+            tx.setStatus(TransactionStatus.CONFIRMED);
+        }
+
+        Block block = new Block(cryptoType, selected, totalWeight, totalFees);
+        LoggerUtil.logInfo("Bloc miné: " + block);
+        return block;
+    }
+
+    public long getWeight(Transaction transaction) {
+        return transaction.getCryptoType().getTransactionWeight();
+    }
+}
@@ -0,0 +1,71 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.config.MempoolConfig;
+import main.java.com.crypto.models.Mempool;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Un seul thread fait avancer les roues d'expiration du mempool et rejette les transactions périmées par lot;
+// il réessaie aussi les remboursements de rejets que la base n'a pas pu écrire
+public class ExpiryService {
+    private static ExpiryService instance;
+    private Mempool mempool;
+    private ScheduledExecutorService scheduler;
+
+    private ExpiryService() {
+        this.mempool = Mempool.getInstance();
+    }
+
+    public static synchronized ExpiryService getInstance() {
+        if (instance == null) {
+            instance = new ExpiryService();
+        }
+        return instance;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mempool-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expirePendingTransactions,
+                MempoolConfig.EXPIRY_TICK_MILLIS, MempoolConfig.EXPIRY_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        LoggerUtil.logInfo("Expiration des transactions en attente démarrée");
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Une transaction expirée est retirée avec ses descendants du même wallet : un enfant n'est sélectionné
+    // qu'avec ses ancêtres, il ne pourrait plus être miné sans son parent même s'il n'a pas encore expiré.
+    // Tous sont rejetés et remboursés (montant + frais); le wallet peut les soumettre de nouveau.
+    public int expirePendingTransactions() {
+        try {
+            // Même tâche planifiée : les remboursements restés en échec sont réessayés à chaque tour
+            TransactionService.getInstance().retryFailedRefunds();
+            List<Transaction> expired = mempool.expireTransactions(System.currentTimeMillis());
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            TransactionService.getInstance().rejectAndRefund(expired);
+            LoggerUtil.logWarning(expired.size() + " transactions expirées (ou descendantes d'une expirée) retirées du mempool et remboursées");
+            return expired.size();
+        } catch (RuntimeException e) {
+            // Une exception non rattrapée arrêterait définitivement la tâche planifiée
+            LoggerUtil.logError("Erreur lors de l'expiration des transactions", e);
+            return 0;
+        }
+    }
+}
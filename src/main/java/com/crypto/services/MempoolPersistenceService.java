@@ -0,0 +1,108 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.config.MempoolConfig;
+import main.java.com.crypto.models.Mempool;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Sauvegarde du mempool à l'arrêt et rechargement au démarrage, recoupé avec les transactions PENDING en base
+public class MempoolPersistenceService {
+    private static MempoolPersistenceService instance;
+    private ITransaction transactionRepository;
+    private Mempool mempool;
+    private Path snapshotFile;
+    // Pas de sauvegarde tant que le mempool n'a pas été restauré : l'instantané précédent serait écrasé
+    private volatile boolean restored;
+
+    private MempoolPersistenceService() {
+        this.transactionRepository = RepositoryFactory.transactions();
+        this.mempool = Mempool.getInstance();
+        this.snapshotFile = Paths.get(MempoolConfig.SNAPSHOT_PATH);
+    }
+
+    public static synchronized MempoolPersistenceService getInstance() {
+        if (instance == null) {
+            instance = new MempoolPersistenceService();
+        }
+        return instance;
+    }
+
+    public boolean saveSnapshot() {
+        if (!restored) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            int count = mempool.writeSnapshot(snapshotFile);
+            LoggerUtil.logInfo(String.format("Instantané du mempool écrit: %d transactions en %d ms (%s)",
+                    count, (System.nanoTime() - start) / 1_000_000, snapshotFile));
+            return true;
+        } catch (IOException e) {
+            LoggerUtil.logError("Erreur lors de l'écriture de l'instantané du mempool: " + snapshotFile, e);
+            return false;
+        }
+    }
+
+    // Recharge l'instantané puis le recoupe avec la base : les transactions qui ne sont plus PENDING sont retirées,
+    // les PENDING absentes de l'instantané sont ajoutées. Sans instantané valide, tout est relu depuis la base.
+    public int restore() {
+        Set<UUID> pendingIds = transactionRepository.findIdsByStatus(TransactionStatus.PENDING);
+        if (pendingIds == null) {
+            LoggerUtil.logWarning("Transactions PENDING indisponibles, mempool non restauré");
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        if (Files.exists(snapshotFile)) {
+            try {
+                int loaded = mempool.readSnapshot(snapshotFile);
+                LoggerUtil.logInfo(String.format("Instantané du mempool relu: %d transactions en %d ms",
+                        loaded, (System.nanoTime() - start) / 1_000_000));
+            } catch (IOException e) {
+                LoggerUtil.logError("Instantané du mempool illisible, rechargement depuis la base: " + snapshotFile, e);
+                mempool.clear();
+            }
+        }
+
+        int removed = 0;
+        for (Transaction tx : mempool.getTransactions()) {
+            if (!pendingIds.remove(tx.getId())) {
+                mempool.removeTransaction(tx.getId());
+                removed++;
+            }
+        }
+
+        // Ajout par date de création pour reconstituer les chaînes de chaque wallet dans l'ordre
+        List<Transaction> rejected = new ArrayList<>();
+        int added = 0;
+        for (Transaction tx : transactionRepository.findByIds(pendingIds)) {
+            if (mempool.addTransaction(tx)) {
+                added++;
+            } else {
+                rejected.add(tx);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            // Débitées à la soumission : rejetées avec remboursement, comme une éviction
+            TransactionService.getInstance().rejectAndRefund(rejected);
+        }
+
+        LoggerUtil.logInfo(String.format(
+                "Mempool restauré: %d transactions (%d retirées, %d ajoutées depuis la base, %d refusées) en %d ms",
+                mempool.getTransactionCount(), removed, added, rejected.size(),
+                (System.nanoTime() - start) / 1_000_000));
+        restored = true;
+        return mempool.getTransactionCount();
+    }
+}
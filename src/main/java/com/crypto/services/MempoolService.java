@@ -1,6 +1,7 @@
 package main.java.com.crypto.services;
 
 import main.java.com.crypto.models.Mempool;
+import main.java.com.crypto.models.MempoolSnapshot;
 import main.java.com.crypto.models.Transaction;
 import main.java.com.crypto.enums.CryptoType;
 import main.java.com.crypto.enums.FeeLevel;
@@ -9,28 +10,34 @@ import main.java.com.crypto.utils.FeeCalculator;
 import main.java.com.crypto.utils.LoggerUtil;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class MempoolService {
-    private static MempoolService instance;
-    private Mempool mempool;
-    private Random random;
+    private final Mempool mempool;
+    private final Random random;
 
     private MempoolService() {
         this.mempool = Mempool.getInstance();
         this.random = new Random();
     }
 
-    public static synchronized MempoolService getInstance() {
-        if (instance == null) {
-            instance = new MempoolService();
-        }
-        return instance;
+    // Initialisée au premier appel par le chargement de la classe, sans verrou ensuite
+    private static class Holder {
+        static final MempoolService INSTANCE = new MempoolService();
+    }
+
+    public static MempoolService getInstance() {
+        return Holder.INSTANCE;
     }
 
-    public void addTransactionToMempool(Transaction transaction) {
-        mempool.addTransaction(transaction);
+    public boolean addTransactionToMempool(Transaction transaction) {
+        if (!mempool.addTransaction(transaction)) {
+            LoggerUtil.logWarning(String.format("Transaction refusée par le mempool: %s - Frais: %.6f - Plancher: %.6f",
+                    transaction.getId(), transaction.getFees(), mempool.getMinimumFee(transaction.getCryptoType())));
+            return false;
+        }
         LoggerUtil.logInfo("Transaction ajoutée au mempool: " + transaction.getId());
+        return true;
     }
 
     public void removeTransactionFromMempool(UUID transactionId) {
@@ -38,46 +45,44 @@ public class MempoolService {
         LoggerUtil.logInfo("Transaction retirée du mempool: " + transactionId);
     }
 
+    // Position selon le score de paquet si la transaction est dans le mempool, sinon selon ses frais
     public int calculatePosition(Transaction transaction) {
-        List<Transaction> sortedTransactions = mempool.getSortedTransactions();
-
-        if (sortedTransactions.isEmpty()) {
-            return 1;
+        int rank = mempool.getRank(transaction.getId());
+        if (rank > 0) {
+            return rank;
         }
+        return mempool.countHigherFees(transaction.getCryptoType(), transaction.getFees()) + 1;
+    }
 
-        int position = 1;
-        for (Transaction tx : sortedTransactions) {
-            if (tx.getFees() > transaction.getFees()) {
-                position++;
-            } else {
-                break;
-            }
+    public boolean replaceTransactionInMempool(UUID originalId, Transaction replacement) {
+        if (!mempool.replaceTransaction(originalId, replacement)) {
+            LoggerUtil.logWarning("Remplacement refusé par le mempool: " + originalId + " -> " + replacement.getId());
+            return false;
         }
+        LoggerUtil.logInfo("Transaction remplacée dans le mempool: " + originalId + " -> " + replacement.getId());
+        return true;
+    }
 
-        return position;
+    public boolean canAcceptChild(CryptoType cryptoType, UUID walletId) {
+        return mempool.getChainLength(cryptoType, walletId) < mempool.getMaxChainLength();
     }
 
     public int calculateSimulatedPosition(Transaction simulatedTransaction, FeeLevel feeLevel) {
-        List<Transaction> simulatedMempool = new ArrayList<>(mempool.getTransactions());
-
-        Transaction tempTx = new Transaction();
-        tempTx.setId(UUID.randomUUID());
-        tempTx.setFees(calculateSimulatedFee(simulatedTransaction.getCryptoType(), feeLevel, simulatedTransaction.getAmount()));
-        tempTx.setFeeLevel(feeLevel);
-
-        simulatedMempool.add(tempTx);
-
-        List<Transaction> sorted = simulatedMempool.stream()
-                .sorted(Comparator.comparingDouble(Transaction::getFees).reversed())
-                .collect(Collectors.toList());
+        return calculateSimulatedPositions(simulatedTransaction.getCryptoType(),
+                simulatedTransaction.getAmount(), feeLevel)[0];
+    }
 
-        for (int i = 0; i < sorted.size(); i++) {
-            if (sorted.get(i).getId().equals(tempTx.getId())) {
-                return i + 1;
-            }
+    // Positions simulées pour plusieurs niveaux de frais en une seule lecture de l'index
+    public int[] calculateSimulatedPositions(CryptoType cryptoType, double amount, FeeLevel... feeLevels) {
+        double[] fees = new double[feeLevels.length];
+        for (int i = 0; i < feeLevels.length; i++) {
+            fees[i] = calculateSimulatedFee(cryptoType, feeLevels[i], amount);
         }
+        return mempool.simulatePositions(cryptoType, fees);
+    }
 
-        return sorted.size();
+    public int[] calculatePositionsForFees(CryptoType cryptoType, double... fees) {
+        return mempool.simulatePositions(cryptoType, fees);
     }
 
     private double calculateSimulatedFee(CryptoType cryptoType, FeeLevel feeLevel, double amount) {
@@ -118,6 +123,30 @@ public class MempoolService {
         return mempool.getTransactionCount();
     }
 
+    public int getMempoolSize(CryptoType cryptoType) {
+        return mempool.getTransactionCount(cryptoType);
+    }
+
+    public long getMemoryUsage() {
+        return mempool.getMemoryUsage();
+    }
+
+    public long getMemoryUsage(CryptoType cryptoType) {
+        return mempool.getMemoryUsage(cryptoType);
+    }
+
+    public long getMaxMemory() {
+        return mempool.getMaxMemory();
+    }
+
+    public double getMinimumFee(CryptoType cryptoType) {
+        return mempool.getMinimumFee(cryptoType);
+    }
+
+    public void setEvictionListener(Consumer<List<Transaction>> evictionListener) {
+        mempool.setEvictionListener(evictionListener);
+    }
+
     public List<Transaction> getMempoolTransactions() {
         return mempool.getTransactions();
     }
@@ -126,6 +155,18 @@ public class MempoolService {
         return mempool.getSortedTransactions();
     }
 
+    public MempoolSnapshot getMempoolSnapshot() {
+        return mempool.snapshot();
+    }
+
+    public List<Transaction> getTopMempoolTransactions(int count) {
+        return mempool.getTopTransactions(count);
+    }
+
+    public List<Transaction> getTopMempoolTransactions(CryptoType cryptoType, int count) {
+        return mempool.getTopTransactions(cryptoType, count);
+    }
+
     public void generateRandomTransactions(int count) {
         for (int i = 0; i < count; i++) {
             Transaction randomTx = createRandomTransaction();
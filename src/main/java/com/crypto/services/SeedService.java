@@ -0,0 +1,144 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.repositories.BulkLoader;
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.models.BitcoinWallet;
+import main.java.com.crypto.models.EthereumWallet;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.utils.FeeCalculator;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Jeux de données pour les tests de charge : générateurs paresseux branchés sur le chargement par COPY
+public class SeedService {
+    private static SeedService instance;
+    // Sans COPY (stockage en mémoire), les éléments sont enregistrés par lots de cette taille
+    private static final int BATCH_SIZE = 1000;
+    // null avec les stockages embarqués (mémoire ou journal)
+    private BulkLoader bulkLoader;
+    private Random random;
+
+    private SeedService() {
+        this.bulkLoader = RepositoryFactory.isEmbedded() ? null : BulkLoader.getInstance();
+        this.random = new Random();
+    }
+
+    public static synchronized SeedService getInstance() {
+        if (instance == null) {
+            instance = new SeedService();
+        }
+        return instance;
+    }
+
+    public long seedWallets(int count) {
+        Generator<Wallet> wallets = new Generator<Wallet>(count) {
+            @Override
+            Wallet create() {
+                Wallet wallet = random.nextBoolean() ? new BitcoinWallet() : new EthereumWallet();
+                wallet.setBalance(random.nextDouble() * 100);
+                return wallet;
+            }
+        };
+        return bulkLoader == null
+                ? saveInBatches(wallets, RepositoryFactory.wallets()::saveAll)
+                : bulkLoader.copyWallets(wallets);
+    }
+
+    // Historique aléatoire réparti sur les wallets donnés (la clé étrangère impose des wallets existants)
+    public long seedTransactions(List<Wallet> wallets, int count) {
+        if (wallets.isEmpty()) {
+            LoggerUtil.logWarning("Aucun wallet pour générer des transactions");
+            return 0;
+        }
+        Generator<Transaction> transactions = new Generator<Transaction>(count) {
+            @Override
+            Transaction create() {
+                return createHistoricalTransaction(wallets.get(random.nextInt(wallets.size())));
+            }
+        };
+        return bulkLoader == null
+                ? saveInBatches(transactions, RepositoryFactory.transactions()::saveAll)
+                : bulkLoader.copyTransactions(transactions);
+    }
+
+    public long importTransactions(Path csvFile) {
+        if (bulkLoader == null) {
+            LoggerUtil.logWarning("Import CSV indisponible sans base PostgreSQL");
+            return -1;
+        }
+        return bulkLoader.importTransactionsCsv(csvFile);
+    }
+
+    // Renvoie le nombre d'éléments enregistrés, -1 dès qu'un lot échoue
+    private static <T> long saveInBatches(Iterator<T> items, Function<List<T>, Integer> saveAll) {
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        long saved = 0;
+        while (items.hasNext()) {
+            batch.add(items.next());
+            if (batch.size() == BATCH_SIZE || !items.hasNext()) {
+                int count = saveAll.apply(batch);
+                if (count < 0) {
+                    return -1;
+                }
+                saved += count;
+                batch.clear();
+            }
+        }
+        return saved;
+    }
+
+    private Transaction createHistoricalTransaction(Wallet wallet) {
+        FeeLevel feeLevel = FeeLevel.values()[random.nextInt(FeeLevel.values().length)];
+        double amount = 0.01 + random.nextDouble() * 10;
+
+        Transaction transaction = new Transaction(UUID.randomUUID());
+        transaction.setSourceAddress(wallet.getAddress());
+        transaction.setDestinationAddress(wallet.getCryptoType() == CryptoType.BITCOIN
+                ? "bc1q" + Long.toHexString(random.nextLong()) : "0x" + Long.toHexString(random.nextLong()));
+        transaction.setAmount(amount);
+        transaction.setFees(FeeCalculator.calculateFee(wallet.getCryptoType(), feeLevel, amount));
+        transaction.setCreationDate(LocalDateTime.now().minusMinutes(random.nextInt(365 * 24 * 60)));
+        transaction.setFeeLevel(feeLevel);
+        transaction.setStatus(random.nextInt(20) == 0 ? TransactionStatus.REJECTED : TransactionStatus.CONFIRMED);
+        transaction.setCryptoType(wallet.getCryptoType());
+        transaction.setWalletId(wallet.getId());
+        return transaction;
+    }
+
+    // Produit les éléments un par un à la demande du chargeur
+    private abstract static class Generator<T> implements Iterator<T> {
+        private int remaining;
+
+        Generator(int count) {
+            this.remaining = count;
+        }
+
+        abstract T create();
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            return create();
+        }
+    }
+}
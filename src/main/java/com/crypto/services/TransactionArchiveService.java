@@ -0,0 +1,79 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.repositories.TransactionPartitionManager;
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Maintenance périodique des partitions de transactions : création des mois à venir, archivage des
+// transactions terminées anciennes, puis suppression des partitions mensuelles vidées
+public class TransactionArchiveService {
+    private static TransactionArchiveService instance;
+    private TransactionPartitionManager partitionManager;
+    private ScheduledExecutorService scheduler;
+
+    private TransactionArchiveService() {
+    }
+
+    public static synchronized TransactionArchiveService getInstance() {
+        if (instance == null) {
+            instance = new TransactionArchiveService();
+        }
+        return instance;
+    }
+
+    // Sans effet avec les stockages embarqués
+    public synchronized void start() {
+        if (scheduler != null || RepositoryFactory.isEmbedded()) {
+            return;
+        }
+        partitionManager = TransactionPartitionManager.getInstance();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = DatabaseConfig.TRANSACTION_ARCHIVE_INTERVAL_MILLIS;
+        scheduler.scheduleWithFixedDelay(this::archive, interval, interval, TimeUnit.MILLISECONDS);
+        LoggerUtil.logInfo("Archivage des transactions terminées démarré");
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Renvoie le nombre de transactions archivées, -1 en cas d'erreur
+    public long archive() {
+        try {
+            if (partitionManager.isPartitioned()) {
+                YearMonth current = YearMonth.now();
+                partitionManager.ensureHotPartitions(current,
+                        current.plusMonths(DatabaseConfig.TRANSACTION_PARTITION_MONTHS_AHEAD));
+            }
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(DatabaseConfig.TRANSACTION_ARCHIVE_AFTER_DAYS);
+            long startedAt = System.currentTimeMillis();
+            long archived = partitionManager.archiveSettled(cutoff, DatabaseConfig.TRANSACTION_ARCHIVE_BATCH_SIZE);
+            if (archived < 0) {
+                return -1;
+            }
+            int dropped = partitionManager.isPartitioned() ? partitionManager.dropEmptyPartitions(cutoff) : 0;
+            if (archived > 0 || dropped > 0) {
+                LoggerUtil.logInfo(String.format("%d transactions archivées, %d partitions vides supprimées en %d ms",
+                        archived, Math.max(dropped, 0), System.currentTimeMillis() - startedAt));
+            }
+            return archived;
+        } catch (RuntimeException e) {
+            // Une exception non rattrapée arrêterait définitivement la tâche planifiée
+            LoggerUtil.logError("Erreur lors de l'archivage des transactions", e);
+            return -1;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package main.java.com.crypto.services;
 
-import main.java.com.crypto.repositories.TransactionRepository;
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.config.MempoolConfig;
 import main.java.com.crypto.models.Transaction;
 import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.models.WalletStats;
 import main.java.com.crypto.enums.FeeLevel;
 import main.java.com.crypto.enums.TransactionStatus;
 import main.java.com.crypto.enums.CryptoType;
@@ -12,27 +15,43 @@ import main.java.com.crypto.utils.LoggerUtil;
 import main.java.com.crypto.exceptions.InvalidAddressException;
 import main.java.com.crypto.exceptions.InsufficientBalanceException;
 import main.java.com.crypto.exceptions.InvalidAmountException;
+import main.java.com.crypto.exceptions.FeeTooLowException;
+import main.java.com.crypto.exceptions.TooManyPendingTransactionsException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class TransactionService {
-    private static TransactionService instance;
-    private TransactionRepository transactionRepository;
-    private MempoolService mempoolService;
-
+    private final ITransaction transactionRepository;
+    private final MempoolService mempoolService;
+    private final WriteBehindService writeBehindService;
+    // Rejets déjà sortis du mempool dont le remboursement n'a pas pu être écrit (base indisponible) : encore
+    // PENDING et débités en base jusqu'à la prochaine tentative. Perdus à l'arrêt, ils reviennent au mempool
+    // au redémarrage avec les autres PENDING.
+    private final Set<UUID> unrefunded = ConcurrentHashMap.newKeySet();
 
     private TransactionService() {
-        this.transactionRepository = TransactionRepository.getInstance();
+        this.transactionRepository = RepositoryFactory.transactions();
         this.mempoolService = MempoolService.getInstance();
+        this.writeBehindService = WriteBehindService.getInstance();
+        this.mempoolService.setEvictionListener(this::rejectEvictedTransactions);
     }
 
-    public static synchronized TransactionService getInstance() {
-        if (instance == null) {
-            instance = new TransactionService();
-        }
-        return instance;
+    // Initialisée au premier appel par le chargement de la classe, sans verrou ensuite
+    private static class Holder {
+        static final TransactionService INSTANCE = new TransactionService();
+    }
+
+    public static TransactionService getInstance() {
+        return Holder.INSTANCE;
     }
 
     public Transaction createTransaction(Wallet wallet, String destinationAddress,
@@ -48,6 +67,16 @@ public class TransactionService {
         double fees = FeeCalculator.calculateFee(wallet.getCryptoType(), feeLevel, amount);
         double totalAmount = amount + fees;
 
+        double minimumFee = mempoolService.getMinimumFee(wallet.getCryptoType());
+        if (fees < minimumFee) {
+            throw new FeeTooLowException(String.format(
+                    "Frais %.6f inférieurs au minimum actuel du mempool (%.6f)", fees, minimumFee));
+        }
+
+        if (!mempoolService.canAcceptChild(wallet.getCryptoType(), wallet.getId())) {
+            throw new TooManyPendingTransactionsException("Trop de transactions en attente pour ce wallet");
+        }
+
         Transaction transaction = new Transaction();
         transaction.setId(UUID.randomUUID());
         transaction.setSourceAddress(wallet.getAddress());
@@ -60,26 +89,167 @@ public class TransactionService {
         transaction.setWalletId(wallet.getId());
         transaction.setCreationDate(LocalDateTime.now());
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // Sérialise le débit avec les autres écritures locales du même wallet (crédits, autres envois)
+        return WalletService.getInstance().withWalletLock(wallet.getId(),
+                () -> debitAndSubmit(wallet, transaction, totalAmount));
+    }
+
+    // Appelée sous le verrou du wallet. Les contrôles en lecture seule (plancher, chaîne) ont eu lieu avant;
+    // la transaction n'entre au mempool qu'une fois écrite et débitée : elle ne peut être ni minée ni provoquer
+    // d'éviction avant d'exister en base. Si le mempool la refuse malgré tout (plancher remonté entre-temps),
+    // elle est rejetée et remboursée.
+    private Transaction debitAndSubmit(Wallet wallet, Transaction transaction, double totalAmount) {
+        if (writeBehindService.isEnabled()) {
+            // Le solde de l'appelant a pu être lu avant un envoi concurrent pas encore écrit en base
+            WalletService.getInstance().getWalletById(wallet.getId())
+                    .ifPresent(current -> wallet.setBalance(current.getBalance()));
+        }
+        if (wallet.getBalance() < totalAmount) {
+            throw new InsufficientBalanceException("Solde insuffisant pour envoyer " + totalAmount);
+        }
+
+        if (writeBehindService.isEnabled()) {
+            submitWriteBehind(wallet, transaction, totalAmount);
+        } else {
+            OptionalDouble newBalance = transactionRepository.saveAndDebit(transaction, totalAmount);
+            if (!newBalance.isPresent()) {
+                return null;
+            }
+            // Solde relu depuis la base : tient compte des envois concurrents depuis ce wallet
+            wallet.setBalance(newBalance.getAsDouble());
+            WalletService.getInstance().onBalanceChanged(wallet.getId(), newBalance.getAsDouble());
+        }
+
+        if (!mempoolService.addTransactionToMempool(transaction)) {
+            undoSubmission(wallet, transaction);
+            throw new FeeTooLowException("Transaction refusée par le mempool (plancher de frais ou chaîne pleine)");
+        }
+
+        LoggerUtil.logInfo(String.format(
+                "Transaction créée: %s - Wallet: %s - Montant: %.6f - Frais: %.6f - Nouveau solde: %.6f",
+                transaction.getId(), wallet.getId(), transaction.getAmount(), transaction.getFees(), wallet.getBalance()
+        ));
+        return transaction;
+    }
+
+    // Écriture différée : la transaction est acceptée dès qu'elle est journalisée, la base suit par lots.
+    // Le solde a été vérifié sur le wallet en mémoire, qui tient compte des débits pas encore écrits.
+    private void submitWriteBehind(Wallet wallet, Transaction transaction, double totalAmount) {
+        writeBehindService.submit(transaction, totalAmount);
+        wallet.setBalance(wallet.getBalance() - totalAmount);
+    }
+
+    // Soumission déjà écrite et débitée que le mempool refuse : rejet et remboursement atomiques, puis
+    // suppression de la ligne. En écriture différée, la soumission est annulée dans la file et sera écrite
+    // REJECTED sans débit : la supprimer ici courrait contre le thread d'écriture.
+    private void undoSubmission(Wallet wallet, Transaction transaction) {
+        rejectAndRefund(Collections.singletonList(transaction));
+        if (!writeBehindService.isEnabled()) {
+            transactionRepository.deleteById(transaction.getId());
+        }
+        WalletService.getInstance().getWalletById(wallet.getId())
+                .ifPresent(current -> wallet.setBalance(current.getBalance()));
+    }
+
+    // Accélère une transaction en attente en la remplaçant par une version plus chère (RBF).
+    // Seule la différence de frais est débitée; l'originale est marquée REJECTED.
+    public Transaction bumpFee(Wallet wallet, UUID transactionId, FeeLevel newFeeLevel) {
+        Optional<Transaction> originalOpt = mempoolService.findTransactionInMempool(transactionId);
+        if (!originalOpt.isPresent() || !wallet.getId().equals(originalOpt.get().getWalletId())) {
+            throw new IllegalArgumentException("Transaction en attente introuvable pour ce wallet: " + transactionId);
+        }
+        Transaction original = originalOpt.get();
+
+        double fees = FeeCalculator.calculateFee(wallet.getCryptoType(), newFeeLevel, original.getAmount());
+        double minimumFee = original.getFees() + MempoolConfig.INCREMENTAL_FEE;
+        if (fees < minimumFee) {
+            throw new FeeTooLowException(String.format(
+                    "Les nouveaux frais (%.6f) doivent dépasser les frais actuels d'au moins %.6f",
+                    fees, MempoolConfig.INCREMENTAL_FEE));
+        }
+
+        double feeDifference = fees - original.getFees();
+        return WalletService.getInstance().withWalletLock(wallet.getId(),
+                () -> replace(wallet, original, fees, newFeeLevel, feeDifference));
+    }
+
+    // Appelée sous le verrou du wallet. Le solde relu tient compte des envois pas encore écrits en base.
+    private Transaction replace(Wallet wallet, Transaction original, double fees, FeeLevel newFeeLevel,
+                                double feeDifference) {
+        UUID transactionId = original.getId();
+        WalletService.getInstance().getWalletById(wallet.getId())
+                .ifPresent(current -> wallet.setBalance(current.getBalance()));
+        if (wallet.getBalance() < feeDifference) {
+            throw new InsufficientBalanceException("Solde insuffisant pour augmenter les frais");
+        }
+
+        Transaction replacement = new Transaction();
+        replacement.setId(UUID.randomUUID());
+        replacement.setSourceAddress(original.getSourceAddress());
+        replacement.setDestinationAddress(original.getDestinationAddress());
+        replacement.setAmount(original.getAmount());
+        replacement.setFees(fees);
+        replacement.setFeeLevel(newFeeLevel);
+        replacement.setStatus(TransactionStatus.PENDING);
+        replacement.setCryptoType(original.getCryptoType());
+        replacement.setWalletId(original.getWalletId());
+        replacement.setCreationDate(LocalDateTime.now());
+
+        Transaction savedReplacement = writeBehindService.isEnabled()
+                ? replaceWriteBehind(original, replacement)
+                : replaceDirect(wallet, original, replacement, feeDifference);
+        if (savedReplacement == null) {
+            return null;
+        }
 
-        if (savedTransaction != null) {
-            mempoolService.addTransactionToMempool(savedTransaction);
+        double newBalance = wallet.getBalance() - feeDifference;
+        wallet.setBalance(newBalance);
 
-            // Débit réel du solde
-            double newBalance = wallet.getBalance() - totalAmount;
-            wallet.setBalance(newBalance);
+        LoggerUtil.logInfo(String.format(
+                "Frais augmentés: %s remplacée par %s - Frais: %.6f -> %.6f - Nouveau solde: %.6f",
+                transactionId, savedReplacement.getId(), original.getFees(), fees, newBalance
+        ));
+        return savedReplacement;
+    }
 
-            // Mettre à jour le wallet dans la base
-            WalletService walletService = WalletService.getInstance();
-            walletService.updateWalletBalance(wallet.getId(), newBalance);
+    // La différence de frais est débitée d'abord, par une mise à jour conditionnée par la version du wallet,
+    // puis remboursée si le remplacement échoue; l'originale, déjà en base, est marquée REJECTED.
+    private Transaction replaceDirect(Wallet wallet, Transaction original, Transaction replacement,
+                                      double feeDifference) {
+        WalletService walletService = WalletService.getInstance();
+        Optional<Wallet> debited = walletService.debitWallet(wallet.getId(), feeDifference);
+        if (!debited.isPresent()) {
+            return null;
+        }
 
-            LoggerUtil.logInfo(String.format(
-                    "Transaction créée: %s - Wallet: %s - Montant: %.6f - Frais: %.6f - Nouveau solde: %.6f",
-                    savedTransaction.getId(), wallet.getId(), amount, fees, newBalance
-            ));
+        Transaction savedReplacement = transactionRepository.save(replacement);
+        if (savedReplacement == null) {
+            walletService.creditWallet(wallet.getId(), feeDifference);
+            return null;
         }
 
-        return savedTransaction;
+        if (!mempoolService.replaceTransactionInMempool(original.getId(), savedReplacement)) {
+            updateTransactionStatus(savedReplacement.getId(), TransactionStatus.REJECTED);
+            walletService.creditWallet(wallet.getId(), feeDifference);
+            throw new FeeTooLowException("Remplacement refusé par le mempool");
+        }
+        updateTransactionStatus(original.getId(), TransactionStatus.REJECTED);
+        return savedReplacement;
+    }
+
+    // Écriture différée : l'originale attend peut-être encore dans la file, où une mise à jour directe de son
+    // statut ne la trouverait pas, et le solde en base ignore les envois pas encore écrits. Le remplacement
+    // est donc soumis comme un envoi (montant + frais), puis l'originale est rejetée et remboursée en entier :
+    // annulée dans la file si elle n'est pas encore écrite, remboursée en base sinon. Au final seule la
+    // différence de frais est débitée.
+    private Transaction replaceWriteBehind(Transaction original, Transaction replacement) {
+        writeBehindService.submit(replacement, replacement.getAmount() + replacement.getFees());
+        if (!mempoolService.replaceTransactionInMempool(original.getId(), replacement)) {
+            rejectAndRefund(Collections.singletonList(replacement));
+            throw new FeeTooLowException("Remplacement refusé par le mempool");
+        }
+        rejectAndRefund(Collections.singletonList(original));
+        return replacement;
     }
 
     public Transaction createSimulatedTransaction(Wallet wallet, String destinationAddress,
@@ -138,32 +308,96 @@ public class TransactionService {
         return transactionRepository.findByWalletId(wallet.getId());
     }
 
+    // Page suivante de l'historique : passer la dernière transaction reçue, null pour la première page
+    public List<Transaction> getTransactionPage(Wallet wallet, Transaction after, int limit) {
+        return after == null
+                ? transactionRepository.findPageByWalletId(wallet.getId(), null, null, limit)
+                : transactionRepository.findPageByWalletId(wallet.getId(), after.getCreationDate(), after.getId(), limit);
+    }
+
+    public int countTransactionsByWallet(Wallet wallet) {
+        return transactionRepository.countByWalletId(wallet.getId());
+    }
+
+    // Résumé de l'activité sans relire l'historique (wallet_stats en base)
+    public Optional<WalletStats> getWalletStats(Wallet wallet) {
+        return transactionRepository.findStatsByWalletId(wallet.getId());
+    }
+
+    public long forEachTransactionOfWallet(Wallet wallet, Consumer<Transaction> consumer) {
+        return transactionRepository.forEachByWalletId(wallet.getId(), consumer);
+    }
+
     public List<Transaction> getPendingTransactions() {
-        return transactionRepository.findByStatus(TransactionStatus.PENDING);
+        return transactionRepository.findByStatus(TransactionStatus.PENDING.name());
     }
 
+    // Une seule requête ciblée : la date de création n'est plus écrasée à la confirmation (confirmed_at est renseignée)
     public boolean updateTransactionStatus(UUID transactionId, TransactionStatus newStatus) {
-        Optional<Transaction> transactionOpt = transactionRepository.findById(transactionId);
-        if (transactionOpt.isPresent()) {
-            Transaction transaction = transactionOpt.get();
-            transaction.setStatus(newStatus);
-
+        if (transactionRepository.updateStatus(transactionId, newStatus)) {
             if (newStatus == TransactionStatus.CONFIRMED) {
-                transaction.setCreationDate(LocalDateTime.now());
+                mempoolService.removeTransactionFromMempool(transactionId);
             }
 
-            Transaction updatedTransaction = transactionRepository.save(transaction);
+            LoggerUtil.logInfo("Statut transaction " + transactionId + " mis à jour: " + newStatus);
+            return true;
+        }
+        return false;
+    }
 
-            if (updatedTransaction != null) {
-                if (newStatus == TransactionStatus.CONFIRMED) {
-                    mempoolService.removeTransactionFromMempool(transactionId);
-                }
+    // Les transactions évincées du mempool plein ne seront jamais confirmées
+    private void rejectEvictedTransactions(List<Transaction> evicted) {
+        rejectAndRefund(evicted);
+        LoggerUtil.logWarning(evicted.size() + " transactions évincées du mempool (limite mémoire atteinte)");
+    }
 
-                LoggerUtil.logInfo("Statut transaction " + transactionId + " mis à jour: " + newStatus);
-                return true;
-            }
+    // Rejette des transactions sorties du mempool sans confirmation et rend leur débit (montant + frais) au
+    // wallet. Celles encore dans la file d'écriture différée y sont annulées; les autres sont rejetées et
+    // remboursées en base dans une même transaction SQL. Sans effet sur une transaction déjà terminée.
+    public void rejectAndRefund(List<Transaction> rejected) {
+        List<UUID> ids = new ArrayList<>(rejected.size());
+        for (Transaction tx : rejected) {
+            tx.setStatus(TransactionStatus.REJECTED);
+            ids.add(tx.getId());
         }
-        return false;
+        if (writeBehindService.isEnabled()) {
+            ids.removeAll(writeBehindService.cancel(ids));
+        }
+        if (!refundInStore(ids)) {
+            unrefunded.addAll(ids);
+            LoggerUtil.logError(ids.size() + " transactions rejetées par le mempool restent PENDING, remboursement réessayé plus tard");
+        }
+    }
+
+    // Nouvelle tentative pour les remboursements en échec; appelée périodiquement. Renvoie le nombre de
+    // transactions traitées. Sans danger si une autre tentative les a déjà remboursées.
+    public int retryFailedRefunds() {
+        if (unrefunded.isEmpty()) {
+            return 0;
+        }
+        List<UUID> ids = new ArrayList<>(unrefunded);
+        if (!refundInStore(ids)) {
+            return 0;
+        }
+        unrefunded.removeAll(ids);
+        LoggerUtil.logInfo(ids.size() + " remboursements en attente écrits");
+        return ids.size();
+    }
+
+    private boolean refundInStore(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        Map<UUID, Double> refunds = transactionRepository.rejectAndRefund(ids);
+        if (refunds == null) {
+            return false;
+        }
+        // Le remboursement est relatif : le nouveau solde n'est pas connu ici
+        WalletService walletService = WalletService.getInstance();
+        for (UUID walletId : refunds.keySet()) {
+            walletService.onBalanceInvalidated(walletId);
+        }
+        return true;
     }
 
     public boolean processTransaction(Transaction transaction) {
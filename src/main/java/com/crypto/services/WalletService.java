@@ -1,30 +1,48 @@
 package main.java.com.crypto.services;
 
-import main.java.com.crypto.repositories.WalletRepository;
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.repositories.CachedWalletRepository;
+import main.java.com.crypto.repositories.RepositoryFactory;
 import main.java.com.crypto.models.Wallet;
 import main.java.com.crypto.models.BitcoinWallet;
 import main.java.com.crypto.models.EthereumWallet;
 import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.exceptions.InsufficientBalanceException;
 import main.java.com.crypto.utils.LoggerUtil;
+import main.java.com.crypto.utils.StripedLock;
 import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.TransactionHistory;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
 
 public class WalletService {
-    private static WalletService instance;
-    private WalletRepository walletRepository;
+    private final CachedWalletRepository walletRepository;
+    // Sérialise les lectures-modifications-écritures du solde d'un même wallet
+    private final StripedLock walletLocks;
 
     // CONSTRUCTEUR SIMPLE SANS DÉPENDANCE
     private WalletService() {
-        this.walletRepository = WalletRepository.getInstance();
+        this.walletRepository = CachedWalletRepository.getInstance();
+        this.walletLocks = new StripedLock(DatabaseConfig.WALLET_LOCK_STRIPES);
     }
 
-    public static synchronized WalletService getInstance() {
-        if (instance == null) {
-            instance = new WalletService();
-        }
-        return instance;
+    // Initialisée au premier appel par le chargement de la classe, sans verrou ensuite
+    private static class Holder {
+        static final WalletService INSTANCE = new WalletService();
+    }
+
+    public static WalletService getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Les opérations sur des wallets différents s'exécutent en parallèle, celles d'un même wallet à la suite
+    public <T> T withWalletLock(UUID walletId, Supplier<T> action) {
+        return walletLocks.withLock(walletId, action);
     }
 
     public Wallet createWallet(CryptoType cryptoType) {
@@ -45,6 +63,7 @@ public class WalletService {
 
         Wallet savedWallet = walletRepository.save(wallet);
         if (savedWallet != null) {
+            withHistory(savedWallet);
             LoggerUtil.logInfo("Nouveau wallet créé: " + savedWallet.getId() + " - " + cryptoType);
         }
 
@@ -57,55 +76,120 @@ public class WalletService {
             return false;
         }
 
-        Optional<Wallet> walletOpt = walletRepository.findById(walletId);
-        if (walletOpt.isPresent()) {
+        Optional<Wallet> credited = withWalletLock(walletId,
+                () -> updateBalanceOptimistically(walletId, balance -> balance + amount));
+        credited.ifPresent(wallet -> LoggerUtil.logInfo(String.format(
+                "Wallet crédité: %s - Montant: %.6f %s - Nouveau solde: %.6f %s",
+                walletId, amount, wallet.getCryptoType().getSymbol(),
+                wallet.getBalance(), wallet.getCryptoType().getSymbol()
+        )));
+        return credited.isPresent();
+    }
+
+    // Débit relatif du solde courant; lève InsufficientBalanceException si le solde ne suffit pas.
+    // Renvoie le wallet débité, vide s'il est introuvable ou si les conflits persistent.
+    public Optional<Wallet> debitWallet(UUID walletId, double amount) {
+        return withWalletLock(walletId, () -> updateBalanceOptimistically(walletId, balance -> {
+            if (balance < amount) {
+                throw new InsufficientBalanceException("Solde insuffisant pour débiter " + amount);
+            }
+            return balance - amount;
+        }));
+    }
+
+    // Lecture puis écriture conditionnée par la version lue : aucun verrou de ligne n'est gardé entre les deux
+    // allers-retours. Si une autre instance a écrit entre-temps, on relit et on recommence après une attente
+    // aléatoire dont la borne double à chaque conflit. Le verrou local évite déjà les conflits entre threads
+    // de cette instance.
+    private Optional<Wallet> updateBalanceOptimistically(UUID walletId, DoubleUnaryOperator update) {
+        long backoff = DatabaseConfig.WALLET_UPDATE_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            Optional<Wallet> walletOpt = walletRepository.findById(walletId);
+            if (!walletOpt.isPresent()) {
+                return Optional.empty();
+            }
             Wallet wallet = walletOpt.get();
-            double newBalance = wallet.getBalance() + amount;
-            wallet.setBalance(newBalance);
-
-            Wallet updatedWallet = walletRepository.save(wallet);
-            if (updatedWallet != null) {
-                LoggerUtil.logInfo(String.format(
-                        "Wallet crédité: %s - Montant: %.6f %s - Nouveau solde: %.6f %s",
-                        walletId, amount, wallet.getCryptoType().getSymbol(),
-                        newBalance, wallet.getCryptoType().getSymbol()
-                ));
-                return true;
+            double newBalance = update.applyAsDouble(wallet.getBalance());
+            if (walletRepository.updateBalanceIfVersion(walletId, wallet.getVersion(), newBalance)) {
+                wallet.setBalance(newBalance);
+                wallet.setVersion(wallet.getVersion() + 1);
+                return Optional.of(wallet);
+            }
+            if (attempt >= DatabaseConfig.WALLET_UPDATE_MAX_ATTEMPTS) {
+                LoggerUtil.logWarning("Solde du wallet " + walletId + " non mis à jour après "
+                        + attempt + " conflits de version");
+                return Optional.empty();
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
             }
+            backoff *= 2;
         }
-        return false;
     }
 
     public Optional<Wallet> getWalletById(UUID id) {
-        return walletRepository.findById(id);
+        return walletRepository.findById(id).map(this::withPendingDebits).map(this::withHistory);
     }
 
     public Optional<Wallet> getWalletByAddress(String address) {
-        return walletRepository.findByAddress(address);
+        return walletRepository.findByAddress(address).map(this::withPendingDebits).map(this::withHistory);
     }
 
     public List<Wallet> getAllWallets() {
-        return walletRepository.findAll();
+        List<Wallet> wallets = walletRepository.findAll();
+        wallets.forEach(wallet -> withHistory(withPendingDebits(wallet)));
+        return wallets;
     }
 
-    public boolean updateWalletBalance(UUID walletId, double newBalance) {
-        Optional<Wallet> walletOpt = walletRepository.findById(walletId);
-        if (walletOpt.isPresent()) {
-            Wallet wallet = walletOpt.get();
-            wallet.setBalance(newBalance);
-            Wallet updatedWallet = walletRepository.save(wallet);
-            if (updatedWallet != null) {
-                LoggerUtil.logInfo("Solde du wallet mis à jour: " + walletId + " - Nouveau solde: " + newBalance);
-                return true;
-            }
+    // Oublie les transactions déjà chargées : les pages suivantes seront relues en base
+    public void reloadTransactions(Wallet wallet) {
+        withHistory(wallet);
+    }
+
+    // Historique lu page par page à la demande (pagination par curseur), lu par id pour les tests
+    // d'appartenance hors des pages déjà lues, et compté par wallet_stats
+    private Wallet withHistory(Wallet wallet) {
+        ITransaction transactions = RepositoryFactory.transactions();
+        UUID walletId = wallet.getId();
+        wallet.setTransactions(new TransactionHistory(
+                (beforeDate, beforeId, limit) -> transactions.findPageByWalletId(walletId, beforeDate, beforeId, limit),
+                id -> transactions.findById(id).filter(transaction -> walletId.equals(transaction.getWalletId())),
+                () -> transactions.countByWalletId(walletId)));
+        return wallet;
+    }
+
+    // Avec l'écriture différée, le solde en base ne reflète pas encore les envois acceptés mais pas écrits
+    private Wallet withPendingDebits(Wallet wallet) {
+        double pending = WriteBehindService.getInstance().getPendingDebit(wallet.getId());
+        if (pending != 0) {
+            wallet.setBalance(wallet.getBalance() - pending);
         }
-        return false;
+        return wallet;
+    }
+
+    // Solde déjà écrit en base par une autre requête (débit d'une transaction) : le cache suit sans relecture
+    public void onBalanceChanged(UUID walletId, double newBalance) {
+        walletRepository.cacheBalance(walletId, newBalance);
+    }
+
+    // Solde modifié en base sans que la nouvelle valeur soit connue (écriture différée)
+    public void onBalanceInvalidated(UUID walletId) {
+        walletRepository.invalidate(walletId);
+    }
+
+    public String getCacheStatistics() {
+        return walletRepository.getStatistics();
     }
 
     public boolean deleteWallet(UUID walletId) {
-        walletRepository.deleteById(walletId);
-        LoggerUtil.logInfo("Wallet supprimé: " + walletId);
-        return true;
+        return withWalletLock(walletId, () -> {
+            walletRepository.deleteById(walletId);
+            LoggerUtil.logInfo("Wallet supprimé: " + walletId);
+            return true;
+        });
     }
 
     public boolean validateWallet(Wallet wallet) {
@@ -0,0 +1,229 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.models.Transaction;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Journal local de l'écriture différée : une soumission y est ajoutée (et forcée sur disque) avant d'être acceptée.
+// Enregistrement : longueur et CRC32 des données, puis la transaction et le montant à débiter, ou le seul id
+// d'une transaction annulée avant son écriture en base (plus court que toute transaction).
+// Un enregistrement tronqué ou corrompu (arrêt brutal pendant l'écriture) termine la relecture.
+final class WriteBehindJournal {
+    private static final int RECORD_HEADER_BYTES = 4 + 8;
+    // id, wallet, frais, montant, débit, date, niveau de frais, type de crypto, longueurs d'adresses
+    private static final int RECORD_FIXED_BYTES = 16 + 16 + 8 + 8 + 8 + 8 + 4 + 1 + 1 + 2 + 2;
+    private static final int CANCELLATION_BYTES = 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    // Octets écrits depuis l'ouverture (croît même après troncature) et octets déjà forcés sur disque
+    private long appendedBytes;
+    private volatile long forcedBytes;
+    private final Object forceLock = new Object();
+
+    static final class Record {
+        final Transaction transaction;
+        final double debit;
+
+        Record(Transaction transaction, double debit) {
+            this.transaction = transaction;
+            this.debit = debit;
+        }
+    }
+
+    WriteBehindJournal(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Relit les enregistrements intacts et coupe le fichier après le dernier
+    synchronized void readAll(List<Record> records, Set<UUID> cancelled) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        channel.read(buffer, 0);
+        buffer.flip();
+
+        int validEnd = 0;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            long crc = buffer.getLong();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            if (checksum(payload) != crc) {
+                break;
+            }
+            if (length == CANCELLATION_BYTES) {
+                cancelled.add(getUuid(payload));
+            } else {
+                records.add(readRecord(payload));
+            }
+            buffer.position(buffer.position() + length);
+            validEnd = buffer.position();
+        }
+        if (validEnd < size) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+    }
+
+    // Ajoute un enregistrement en fin de fichier; renvoie la position logique à forcer pour le rendre durable
+    synchronized long append(Transaction transaction, double debit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + recordBound(transaction));
+        buffer.position(RECORD_HEADER_BYTES);
+        writeRecord(buffer, transaction, debit);
+        return write(buffer);
+    }
+
+    // Annulation d'une transaction déjà journalisée : au rejeu, elle sera écrite REJECTED sans débit
+    synchronized long appendCancellation(UUID id) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + CANCELLATION_BYTES);
+        buffer.position(RECORD_HEADER_BYTES);
+        putUuid(buffer, id);
+        return write(buffer);
+    }
+
+    private long write(ByteBuffer buffer) throws IOException {
+        int length = buffer.position() - RECORD_HEADER_BYTES;
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(RECORD_HEADER_BYTES);
+        payload.limit(RECORD_HEADER_BYTES + length);
+        buffer.putInt(0, length);
+        buffer.putLong(4, checksum(payload));
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        appendedBytes += RECORD_HEADER_BYTES + length;
+        return appendedBytes;
+    }
+
+    // Commit de groupe : un seul fsync couvre tous les enregistrements ajoutés avant lui,
+    // les appelants concurrents dont l'enregistrement est déjà couvert repartent sans attendre le disque
+    void force(long upTo) throws IOException {
+        if (forcedBytes >= upTo) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (forcedBytes >= upTo) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = appendedBytes;
+            }
+            channel.force(false);
+            forcedBytes = target;
+        }
+    }
+
+    // Vide le journal une fois son contenu écrit en base
+    synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    private static int recordBound(Transaction transaction) {
+        return RECORD_FIXED_BYTES + stringBound(transaction.getSourceAddress())
+                + stringBound(transaction.getDestinationAddress());
+    }
+
+    private static void writeRecord(ByteBuffer out, Transaction transaction, double debit) {
+        putUuid(out, transaction.getId());
+        putUuid(out, transaction.getWalletId());
+        out.putDouble(transaction.getFees());
+        out.putDouble(transaction.getAmount());
+        out.putDouble(debit);
+        LocalDateTime creationDate = transaction.getCreationDate();
+        out.putLong(creationDate.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(creationDate.getNano());
+        out.put((byte) transaction.getFeeLevel().ordinal());
+        out.put((byte) transaction.getCryptoType().ordinal());
+        putString(out, transaction.getSourceAddress());
+        putString(out, transaction.getDestinationAddress());
+    }
+
+    private static Record readRecord(ByteBuffer in) {
+        Transaction transaction = new Transaction(getUuid(in));
+        transaction.setWalletId(getUuid(in));
+        transaction.setFees(in.getDouble());
+        transaction.setAmount(in.getDouble());
+        double debit = in.getDouble();
+        long epochSecond = in.getLong();
+        transaction.setCreationDate(LocalDateTime.ofEpochSecond(epochSecond, in.getInt(), ZoneOffset.UTC));
+        transaction.setFeeLevel(FeeLevel.values()[in.get()]);
+        transaction.setCryptoType(CryptoType.values()[in.get()]);
+        transaction.setSourceAddress(getString(in));
+        transaction.setDestinationAddress(getString(in));
+        transaction.setStatus(TransactionStatus.PENDING);
+        return new Record(transaction, debit);
+    }
+
+    private static long checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return crc.getValue();
+    }
+
+    private static int stringBound(String value) {
+        return value == null ? 0 : 3 * value.length();
+    }
+
+    private static void putUuid(ByteBuffer out, UUID id) {
+        out.putLong(id.getMostSignificantBits());
+        out.putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,471 @@
+package main.java.com.crypto.services;
+
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.exceptions.WriteQueueFullException;
+import main.java.com.crypto.exceptions.WriteRejectedException;
+import main.java.com.crypto.utils.LoggerUtil;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Écriture différée des soumissions : la transaction est journalisée sur disque local puis acceptée aussitôt;
+// un thread d'écriture insère les transactions et débite les wallets en base par lots (un commit par lot).
+// Au démarrage, le journal laissé par un arrêt brutal est rejoué (l'écriture en base est idempotente).
+// Une base indisponible fait réessayer le lot; une ligne que la base refuse définitivement est isolée et rejetée.
+public class WriteBehindService {
+    private static WriteBehindService instance;
+    // Attente entre deux tentatives quand la base est indisponible
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private ITransaction transactionRepository;
+    private final int flushSize;
+    private final long flushLatencyMillis;
+    private final long offerTimeoutMillis;
+
+    private final BlockingQueue<Pending> queue;
+    // Places libres dans la file : une soumission attend au plus offerTimeout qu'une place se libère
+    private final Semaphore capacity;
+    // Débits pas encore écrits en base, par wallet, pour corriger les soldes relus depuis la base
+    private final Map<UUID, PendingDebit> pendingDebits;
+
+    private WriteBehindJournal journal;
+    private Thread writer;
+    private volatile boolean running;
+    // Enregistrements du journal et enregistrements déjà écrits en base, protégés par le verrou du service
+    private long journaled;
+    private long committed;
+    // Transactions journalisées pas encore écrites en base, et celles d'entre elles annulées entre-temps
+    // (évincées ou expirées du mempool), protégées par le verrou du service
+    private final Map<UUID, Pending> uncommitted = new HashMap<>();
+    private final Set<UUID> cancelled = new HashSet<>();
+
+    private static final class Pending {
+        final Transaction transaction;
+        final double debit;
+        // Relu du journal au démarrage : n'occupe pas de place dans la file
+        final boolean replayed;
+
+        Pending(Transaction transaction, double debit, boolean replayed) {
+            this.transaction = transaction;
+            this.debit = debit;
+            this.replayed = replayed;
+        }
+    }
+
+    private static final class PendingDebit {
+        int count;
+        volatile double amount;
+    }
+
+    private WriteBehindService() {
+        this.transactionRepository = RepositoryFactory.transactions();
+        this.flushSize = DatabaseConfig.WRITE_BEHIND_FLUSH_SIZE;
+        this.flushLatencyMillis = DatabaseConfig.WRITE_BEHIND_FLUSH_LATENCY_MILLIS;
+        this.offerTimeoutMillis = DatabaseConfig.WRITE_BEHIND_OFFER_TIMEOUT_MILLIS;
+        this.queue = new LinkedBlockingQueue<>();
+        this.capacity = new Semaphore(DatabaseConfig.WRITE_BEHIND_QUEUE_CAPACITY);
+        this.pendingDebits = new ConcurrentHashMap<>();
+    }
+
+    public static synchronized WriteBehindService getInstance() {
+        if (instance == null) {
+            instance = new WriteBehindService();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    // Ouvre le journal, rejoue son contenu puis démarre le thread d'écriture.
+    // Sans journal utilisable, l'écriture différée reste désactivée et les soumissions sont synchrones.
+    public synchronized void start() {
+        if (!DatabaseConfig.WRITE_BEHIND_ENABLED || running) {
+            return;
+        }
+        try {
+            journal = new WriteBehindJournal(Paths.get(DatabaseConfig.WRITE_BEHIND_JOURNAL_PATH));
+            replay();
+        } catch (IOException e) {
+            LoggerUtil.logError("Journal d'écriture différée inutilisable, écriture synchrone conservée", e);
+            journal = null;
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "write-behind-writer");
+        writer.setDaemon(true);
+        writer.start();
+        LoggerUtil.logInfo(String.format("Écriture différée démarrée (lots de %d, latence %d ms, file de %d)",
+                flushSize, flushLatencyMillis, DatabaseConfig.WRITE_BEHIND_QUEUE_CAPACITY));
+    }
+
+    // Cesse d'accepter des soumissions et écrit ce qui reste dans la file; ce qui n'a pas pu être écrit
+    // reste dans le journal et sera rejoué au prochain démarrage
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            current = writer;
+            writer = null;
+        }
+        try {
+            current.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LoggerUtil.logWarning("Erreur lors de la fermeture du journal d'écriture différée: " + e.getMessage());
+        }
+        LoggerUtil.logInfo("Écriture différée arrêtée - " + queue.size() + " transactions laissées au journal");
+    }
+
+    // Journalise la transaction (fsync groupé) et la place dans la file; la base sera écrite plus tard.
+    // Lève WriteQueueFullException si la file reste pleine au-delà du délai d'attente.
+    public void submit(Transaction transaction, double debit) {
+        Pending pending = new Pending(transaction, debit, false);
+        try {
+            if (!capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new WriteQueueFullException("File d'écriture pleine ("
+                        + DatabaseConfig.WRITE_BEHIND_QUEUE_CAPACITY + " transactions en attente d'écriture)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteQueueFullException("Attente d'une place dans la file d'écriture interrompue", e);
+        }
+
+        try {
+            long position;
+            synchronized (this) {
+                if (!running) {
+                    throw new WriteQueueFullException("Écriture différée arrêtée");
+                }
+                position = journal.append(transaction, debit);
+                journaled++;
+            }
+            journal.force(position);
+        } catch (IOException e) {
+            capacity.release();
+            throw new WriteQueueFullException("Erreur d'écriture du journal d'écriture différée", e);
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        synchronized (this) {
+            uncommitted.put(transaction.getId(), pending);
+        }
+        addPendingDebit(transaction.getWalletId(), debit);
+        queue.add(pending);
+    }
+
+    // Annule des transactions acceptées mais pas encore écrites en base : écrites REJECTED sans débit si leur
+    // lot n'est pas encore parti, remboursées juste après son commit sinon. Leur débit en attente est retiré
+    // aussitôt. L'annulation est journalisée pour survivre à un arrêt brutal. Renvoie les ids pris en charge;
+    // les autres sont déjà en base (ou inconnus) et se remboursent directement par ITransaction.rejectAndRefund.
+    public Set<UUID> cancel(Collection<UUID> ids) {
+        Set<UUID> taken = new HashSet<>();
+        long position = 0;
+        synchronized (this) {
+            if (journal == null) {
+                return taken;
+            }
+            for (UUID id : ids) {
+                Pending pending = uncommitted.get(id);
+                if (pending == null || cancelled.contains(id)) {
+                    continue;
+                }
+                try {
+                    position = journal.appendCancellation(id);
+                } catch (IOException e) {
+                    // Sans l'annulation au journal, seul le chemin direct reste sûr : laissée à l'appelant
+                    LoggerUtil.logWarning("Annulation non journalisée pour " + id + ": " + e.getMessage());
+                    continue;
+                }
+                cancelled.add(id);
+                taken.add(id);
+                removePendingDebit(pending.transaction.getWalletId(), pending.debit);
+            }
+        }
+        if (position > 0) {
+            try {
+                journal.force(position);
+            } catch (IOException e) {
+                LoggerUtil.logWarning("Annulations du journal d'écriture différée non forcées sur disque: " + e.getMessage());
+            }
+        }
+        return taken;
+    }
+
+    // Somme des débits acceptés pour ce wallet mais pas encore écrits en base
+    public double getPendingDebit(UUID walletId) {
+        PendingDebit pending = pendingDebits.get(walletId);
+        return pending == null ? 0 : pending.amount;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void replay() throws IOException {
+        List<WriteBehindJournal.Record> records = new ArrayList<>();
+        Set<UUID> cancelledIds = new HashSet<>();
+        journal.readAll(records, cancelledIds);
+        if (records.isEmpty()) {
+            return;
+        }
+        // Remis en file : écrits avant toute nouvelle soumission, ou au fil de l'eau si la base ne répond pas encore
+        for (WriteBehindJournal.Record record : records) {
+            Pending pending = new Pending(record.transaction, record.debit, true);
+            queue.add(pending);
+            uncommitted.put(record.transaction.getId(), pending);
+            if (cancelledIds.contains(record.transaction.getId())) {
+                cancelled.add(record.transaction.getId());
+            } else {
+                addPendingDebit(record.transaction.getWalletId(), record.debit);
+            }
+        }
+        journaled = records.size();
+        List<Pending> batch = new ArrayList<>(flushSize);
+        while (!queue.isEmpty()) {
+            queue.drainTo(batch, flushSize);
+            if (!flush(batch)) {
+                queue.addAll(batch);
+                LoggerUtil.logWarning(records.size() + " transactions du journal seront écrites dès que la base répondra");
+                return;
+            }
+            batch.clear();
+        }
+        LoggerUtil.logInfo(records.size() + " transactions rejouées depuis le journal d'écriture différée");
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!fillBatch(batch)) {
+                    continue;
+                }
+                while (!flush(batch)) {
+                    if (!running) {
+                        // Arrêt pendant une panne de la base : le journal garde ces transactions
+                        return;
+                    }
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Une exception non rattrapée arrêterait définitivement le thread d'écriture
+                LoggerUtil.logError("Erreur du thread d'écriture différée", e);
+            }
+        }
+    }
+
+    // Attend la première transaction puis complète le lot jusqu'à flushSize ou jusqu'à flushLatency écoulée
+    private boolean fillBatch(List<Pending> batch) throws InterruptedException {
+        if (!batch.isEmpty()) {
+            return true;
+        }
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushLatencyMillis);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0) {
+                break;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    // Un lot, un commit. Le journal est vidé dès que tout ce qui y a été écrit est en base.
+    // Une transaction annulée avant le départ du lot est écrite REJECTED sans débit; une annulation arrivée
+    // pendant l'écriture est remboursée juste après, avant que le lot compte comme écrit. Une transaction dont
+    // le wallet n'a plus le solde (débité par une autre instance) est écrite REJECTED et sort du mempool.
+    // Rejouable en entier : l'insertion ignore les lignes présentes et le remboursement ne touche que les
+    // transactions PENDING. Renvoie faux si la base n'a pas répondu : ce qui reste dans le lot est à réessayer.
+    private boolean flush(List<Pending> batch) {
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        double[] debits = new double[batch.size()];
+        synchronized (this) {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                boolean rejected = cancelled.contains(pending.transaction.getId());
+                transactions.add(rejected ? rejectedCopy(pending.transaction) : pending.transaction);
+                debits[i] = rejected ? 0 : pending.debit;
+            }
+        }
+        Set<UUID> refused;
+        try {
+            refused = transactionRepository.saveAllAndDebit(transactions, debits);
+        } catch (WriteRejectedException e) {
+            return isolate(batch);
+        }
+        if (refused == null) {
+            return false;
+        }
+
+        // Plus aucune annulation ne passe par ce lot : les suivantes trouvent les lignes en base.
+        // Le débit en attente d'une transaction annulée a déjà été retiré par cancel.
+        List<UUID> refunded = new ArrayList<>();
+        List<Pending> debited = new ArrayList<>(batch.size());
+        synchronized (this) {
+            for (Pending pending : batch) {
+                UUID id = pending.transaction.getId();
+                uncommitted.remove(id);
+                if (cancelled.contains(id)) {
+                    refunded.add(id);
+                } else {
+                    debited.add(pending);
+                }
+            }
+        }
+        if (!refunded.isEmpty() && transactionRepository.rejectAndRefund(refunded) == null) {
+            return false;
+        }
+
+        // Le solde en cache date d'avant ce lot : il doit être relu avant de retirer le débit en attente
+        WalletService walletService = WalletService.getInstance();
+        int released = 0;
+        for (Pending pending : batch) {
+            walletService.onBalanceInvalidated(pending.transaction.getWalletId());
+            if (!pending.replayed) {
+                released++;
+            }
+        }
+        for (Pending pending : debited) {
+            removePendingDebit(pending.transaction.getWalletId(), pending.debit);
+            if (refused.contains(pending.transaction.getId())) {
+                pending.transaction.setStatus(TransactionStatus.REJECTED);
+                MempoolService.getInstance().removeTransactionFromMempool(pending.transaction.getId());
+            }
+        }
+        capacity.release(released);
+        if (!refused.isEmpty()) {
+            LoggerUtil.logWarning(refused.size() + " transactions différées rejetées à l'écriture : solde du wallet insuffisant");
+        }
+
+        synchronized (this) {
+            cancelled.removeAll(refunded);
+            markCommitted(batch.size());
+        }
+        return true;
+    }
+
+    // Lot refusé à cause d'une ou plusieurs de ses lignes : écrit par moitiés jusqu'à isoler chaque ligne
+    // fautive, qui est rejetée. Les transactions traitées sortent du lot au fur et à mesure : si la base cesse
+    // de répondre en cours de route, seules les autres sont réessayées.
+    private boolean isolate(List<Pending> batch) {
+        if (batch.size() == 1) {
+            reject(batch.get(0));
+            batch.clear();
+            return true;
+        }
+        List<Pending> first = batch.subList(0, batch.size() / 2);
+        if (!flush(first)) {
+            return false;
+        }
+        first.clear();
+        return flush(batch);
+    }
+
+    // Ligne refusée définitivement par la base (par exemple wallet supprimé entre-temps) : rien n'a été écrit
+    // ni débité. Elle sort de la file et du mempool, libère sa place et compte comme traitée pour le journal.
+    private void reject(Pending pending) {
+        Transaction transaction = pending.transaction;
+        boolean wasCancelled;
+        synchronized (this) {
+            uncommitted.remove(transaction.getId());
+            wasCancelled = cancelled.remove(transaction.getId());
+        }
+        // Le débit en attente d'une transaction annulée a déjà été retiré par cancel
+        if (!wasCancelled) {
+            removePendingDebit(transaction.getWalletId(), pending.debit);
+        }
+        transaction.setStatus(TransactionStatus.REJECTED);
+        MempoolService.getInstance().removeTransactionFromMempool(transaction.getId());
+        WalletService.getInstance().onBalanceInvalidated(transaction.getWalletId());
+        if (!pending.replayed) {
+            capacity.release();
+        }
+        LoggerUtil.logError("Transaction différée " + transaction.getId() + " refusée par la base, rejetée sans débit");
+        markCommitted(1);
+    }
+
+    private synchronized void markCommitted(int count) {
+        committed += count;
+        if (committed == journaled) {
+            try {
+                journal.truncate();
+            } catch (IOException e) {
+                // Sans danger : le rejeu d'un journal déjà écrit n'insère ni ne débite rien
+                LoggerUtil.logWarning("Impossible de vider le journal d'écriture différée: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Transaction rejectedCopy(Transaction source) {
+        Transaction transaction = new Transaction(source.getId());
+        transaction.setSourceAddress(source.getSourceAddress());
+        transaction.setDestinationAddress(source.getDestinationAddress());
+        transaction.setAmount(source.getAmount());
+        transaction.setFees(source.getFees());
+        transaction.setCreationDate(source.getCreationDate());
+        transaction.setFeeLevel(source.getFeeLevel());
+        transaction.setStatus(TransactionStatus.REJECTED);
+        transaction.setCryptoType(source.getCryptoType());
+        transaction.setWalletId(source.getWalletId());
+        return transaction;
+    }
+
+    private void addPendingDebit(UUID walletId, double debit) {
+        pendingDebits.compute(walletId, (id, pending) -> {
+            if (pending == null) {
+                pending = new PendingDebit();
+            }
+            pending.count++;
+            pending.amount += debit;
+            return pending;
+        });
+    }
+
+    private void removePendingDebit(UUID walletId, double debit) {
+        pendingDebits.computeIfPresent(walletId, (id, pending) -> {
+            pending.count--;
+            pending.amount -= debit;
+            return pending.count == 0 ? null : pending;
+        });
+    }
+}
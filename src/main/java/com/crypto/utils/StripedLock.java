@@ -0,0 +1,45 @@
+package main.java.com.crypto.utils;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Verrous répartis par clé (striping) : deux opérations sur la même clé sont sérialisées, deux clés
+// différentes ne se bloquent que si elles tombent sur la même bande. Mémoire fixe quel que soit le nombre
+// de clés, contrairement à un verrou par clé. Verrous réentrants : une opération verrouillée peut en
+// appeler une autre sur la même clé.
+public class StripedLock {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    // Nombre de bandes arrondi à la puissance de deux supérieure
+    public StripedLock(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public Lock get(Object key) {
+        int hash = key.hashCode();
+        // Mélange des bits de poids fort : le masque ne garde que les bits de poids faible
+        hash ^= (hash >>> 16);
+        return locks[hash & mask];
+    }
+
+    public <T> T withLock(Object key, Supplier<T> action) {
+        Lock lock = get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getStripes() {
+        return locks.length;
+    }
+}
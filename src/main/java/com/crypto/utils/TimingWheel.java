@@ -0,0 +1,184 @@
+package main.java.com.crypto.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Roue temporelle hiérarchique (comme les timers de Kafka) : planifier et annuler en O(1),
+// avancer l'horloge en O(1) amorti par échéance. Chaque niveau couvre tick * taille du niveau
+// précédent; les échéances lointaines descendent d'un niveau quand leur case arrive.
+// Non thread-safe : l'appelant sérialise les accès.
+public class TimingWheel<K> {
+    private final Map<K, Timer<K>> timers;
+    private final Level<K> root;
+    // Échéances déjà dépassées au moment de la planification, rendues au prochain advance
+    private final Bucket<K> overdue;
+
+    private static final class Timer<K> {
+        final K key;
+        final long deadline;
+        Timer<K> prev;
+        Timer<K> next;
+
+        Timer(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+
+    // Liste circulaire doublement chaînée avec sentinelle
+    private static final class Bucket<K> {
+        final Timer<K> head = new Timer<>(null, 0);
+
+        Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void add(Timer<K> timer) {
+            timer.prev = head.prev;
+            timer.next = head;
+            head.prev.next = timer;
+            head.prev = timer;
+        }
+
+        // Détache tous les timers et renvoie le premier (chaîne terminée par null)
+        Timer<K> drain() {
+            if (head.next == head) {
+                return null;
+            }
+            Timer<K> first = head.next;
+            head.prev.next = null;
+            head.next = head;
+            head.prev = head;
+            return first;
+        }
+    }
+
+    private static final class Level<K> {
+        final long tick;
+        final int size;
+        final long interval;
+        final Bucket<K>[] buckets;
+        long currentTime;
+        Level<K> overflow;
+
+        Level(long tick, int size, long startTime) {
+            this.tick = tick;
+            this.size = size;
+            this.interval = tick * size;
+            @SuppressWarnings("unchecked")
+            Bucket<K>[] buckets = (Bucket<K>[]) new Bucket<?>[size];
+            this.buckets = buckets;
+            for (int i = 0; i < size; i++) {
+                buckets[i] = new Bucket<>();
+            }
+            this.currentTime = startTime - (startTime % tick);
+        }
+
+        // Place le timer dans ce niveau ou un niveau supérieur; false s'il est déjà échu
+        boolean add(Timer<K> timer) {
+            if (timer.deadline < currentTime + tick) {
+                return false;
+            }
+            if (timer.deadline < currentTime + interval) {
+                buckets[(int) ((timer.deadline / tick) % size)].add(timer);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(interval, size, currentTime);
+            }
+            return overflow.add(timer);
+        }
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("Tick et taille de roue invalides");
+        }
+        this.timers = new HashMap<>();
+        this.root = new Level<>(tickMillis, wheelSize, startMillis);
+        this.overdue = new Bucket<>();
+    }
+
+    // Planifie (ou replanifie) l'échéance d'une clé
+    public void schedule(K key, long deadlineMillis) {
+        Timer<K> timer = new Timer<>(key, deadlineMillis);
+        Timer<K> previous = timers.put(key, timer);
+        if (previous != null) {
+            previous.unlink();
+        }
+        if (!root.add(timer)) {
+            overdue.add(timer);
+        }
+    }
+
+    public boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        timer.unlink();
+        return true;
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    public void clear() {
+        for (Timer<K> timer : timers.values()) {
+            timer.unlink();
+        }
+        timers.clear();
+    }
+
+    // Avance l'horloge jusqu'à nowMillis et ajoute à expired les clés échues
+    public void advance(long nowMillis, List<K> expired) {
+        expire(overdue.drain(), expired);
+        while (root.currentTime + root.tick <= nowMillis) {
+            long time = root.currentTime + root.tick;
+            // Du niveau le plus haut au plus bas : les timers qui descendent sont traités au même pas
+            cascade(root, time, expired);
+        }
+    }
+
+    private void cascade(Level<K> level, long time, List<K> expired) {
+        // L'horloge du niveau avance avant de vider le niveau supérieur pour que ses timers redescendent ici
+        level.currentTime = time;
+        if (level.overflow != null && time % level.overflow.tick == 0) {
+            cascade(level.overflow, time, expired);
+        }
+        Timer<K> timer = level.buckets[(int) ((time / level.tick) % level.size)].drain();
+        while (timer != null) {
+            Timer<K> next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            if (!root.add(timer)) {
+                timers.remove(timer.key);
+                expired.add(timer.key);
+            }
+            timer = next;
+        }
+    }
+
+    private void expire(Timer<K> timer, List<K> expired) {
+        while (timer != null) {
+            Timer<K> next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timers.remove(timer.key);
+            expired.add(timer.key);
+            timer = next;
+        }
+    }
+}
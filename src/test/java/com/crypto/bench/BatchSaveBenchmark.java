@@ -0,0 +1,106 @@
+package test.java.com.crypto.bench;
+
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.interfaces.ITransaction;
+import main.java.com.crypto.interfaces.IWallet;
+import main.java.com.crypto.models.BitcoinWallet;
+import main.java.com.crypto.models.Transaction;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.repositories.DatabaseConnection;
+import main.java.com.crypto.repositories.RepositoryFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Enregistrements un par un contre écriture groupée, sur le stockage configuré (STORAGE_BACKEND, DB_URL...).
+// Mesure save() puis saveAll() sur le même nombre de transactions, puis updateStatus() contre updateStatusAll().
+// Les transactions sont rattachées à un wallet créé pour l'occasion et supprimé à la fin (ON DELETE CASCADE).
+// Échoue si une écriture groupée perd des lignes ou si un statut n'est pas appliqué.
+// Usage : BatchSaveBenchmark [nombre de transactions]
+public class BatchSaveBenchmark {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        ITransaction transactions = RepositoryFactory.transactions();
+        IWallet wallets = RepositoryFactory.wallets();
+
+        Wallet wallet = wallets.save(new BitcoinWallet());
+        if (wallet == null) {
+            System.out.println("Wallet de test non enregistré, stockage indisponible");
+            return;
+        }
+        try {
+            System.out.printf("Stockage %s : %d transactions%n", DatabaseConfig.STORAGE_BACKEND, count);
+
+            List<Transaction> single = newTransactions(wallet, count);
+            long start = System.nanoTime();
+            for (Transaction transaction : single) {
+                transactions.save(transaction);
+            }
+            report("save() x " + count, System.nanoTime() - start, count);
+
+            List<Transaction> batch = newTransactions(wallet, count);
+            start = System.nanoTime();
+            int saved = transactions.saveAll(batch);
+            report("saveAll()", System.nanoTime() - start, count);
+            if (saved != count) {
+                throw new IllegalStateException("saveAll a renvoyé " + saved + " au lieu de " + count);
+            }
+
+            start = System.nanoTime();
+            for (Transaction transaction : single) {
+                transactions.updateStatus(transaction.getId(), TransactionStatus.CONFIRMED);
+            }
+            report("updateStatus() x " + count, System.nanoTime() - start, count);
+
+            List<UUID> ids = new ArrayList<>(count);
+            for (Transaction transaction : batch) {
+                ids.add(transaction.getId());
+            }
+            start = System.nanoTime();
+            transactions.updateStatusAll(ids, TransactionStatus.CONFIRMED);
+            report("updateStatusAll()", System.nanoTime() - start, count);
+
+            for (Transaction transaction : single) {
+                ids.add(transaction.getId());
+            }
+            long confirmed = transactions.findByIds(ids).stream()
+                    .filter(transaction -> transaction.getStatus() == TransactionStatus.CONFIRMED).count();
+            if (confirmed != 2L * count) {
+                throw new IllegalStateException("Statuts non appliqués : " + confirmed + " confirmées au lieu de " + 2L * count);
+            }
+        } finally {
+            wallets.deleteById(wallet.getId());
+            if (!RepositoryFactory.isEmbedded()) {
+                DatabaseConnection.shutdown();
+            }
+        }
+    }
+
+    private static List<Transaction> newTransactions(Wallet wallet, int count) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(UUID.randomUUID());
+            transaction.setWalletId(wallet.getId());
+            transaction.setCryptoType(CryptoType.BITCOIN);
+            transaction.setSourceAddress(wallet.getAddress());
+            transaction.setDestinationAddress(wallet.getAddress());
+            transaction.setAmount(0.001);
+            transaction.setFees(0.0001);
+            transaction.setFeeLevel(FeeLevel.STANDARD);
+            transaction.setStatus(TransactionStatus.PENDING);
+            transaction.setCreationDate(now.minusNanos(i * 1000L));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static void report(String label, long nanos, int count) {
+        System.out.printf("%-24s %8d ms  %,10d lignes/s%n", label, nanos / 1_000_000,
+                count * 1_000_000_000L / Math.max(1, nanos));
+    }
+}
@@ -0,0 +1,165 @@
+package test.java.com.crypto.bench;
+
+import main.java.com.crypto.config.MempoolConfig;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.enums.FeeLevel;
+import main.java.com.crypto.enums.TransactionStatus;
+import main.java.com.crypto.models.Mempool;
+import main.java.com.crypto.models.Transaction;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Débit du mempool sous écritures concurrentes sur un seul CryptoType, sans base ni réseau.
+// Chaque thread fait vivre les chaînes de ses propres wallets (ajout en fin de chaîne, retrait de la tête
+// comme après un bloc) et lit régulièrement un rang et le haut du mempool.
+// Deux passes : toutes les écritures derrière un verrou global (comportement d'avant les bandes), puis en
+// accès direct, où seules les écritures d'une même bande se sérialisent (MEMPOOL_STRIPES).
+// Usage : MempoolStressBenchmark [threads] [opérations par thread] [wallets par thread]
+public class MempoolStressBenchmark {
+    // Longueur des chaînes entretenues par wallet, sous la limite d'ancêtres du mempool
+    private static final int CHAIN_LENGTH = 10;
+    // Une opération sur READ_EVERY est une lecture
+    private static final int READ_EVERY = 10;
+
+    private final Mempool mempool = Mempool.getInstance();
+    private final Object globalLock = new Object();
+    private final int threads;
+    private final int operations;
+    private final int walletsPerThread;
+
+    public MempoolStressBenchmark(int threads, int operations, int walletsPerThread) {
+        this.threads = threads;
+        this.operations = operations;
+        this.walletsPerThread = walletsPerThread;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int wallets = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        MempoolStressBenchmark benchmark = new MempoolStressBenchmark(threads, operations, wallets);
+
+        System.out.printf("Mempool : %d threads x %d opérations, %d wallets par thread, %d bandes (MEMPOOL_STRIPES=%d)%n",
+                threads, operations, wallets, benchmark.mempool.getStripeCount(), MempoolConfig.STRIPES);
+        // Première passe de chauffe du JIT, non mesurée
+        benchmark.run(false);
+        benchmark.report("Verrou global", benchmark.run(true));
+        benchmark.report("Bandes", benchmark.run(false));
+    }
+
+    private void report(String label, long nanos) {
+        long total = (long) threads * operations;
+        System.out.printf("%-14s %,12d op/s (%d ms)%n", label, total * 1_000_000_000L / Math.max(1, nanos), nanos / 1_000_000);
+    }
+
+    // Renvoie la durée de la passe en nanosecondes; vérifie ensuite la cohérence du mempool
+    public long run(boolean serialized) throws Exception {
+        mempool.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return work(serialized);
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int expected = 0;
+        for (Future<Integer> result : results) {
+            expected += result.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        verify(expected);
+        return elapsed;
+    }
+
+    // Renvoie le nombre de transactions laissées dans le mempool par ce thread
+    private int work(boolean serialized) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID[] wallets = new UUID[walletsPerThread];
+        List<Deque<UUID>> chains = new ArrayList<>(walletsPerThread);
+        for (int w = 0; w < walletsPerThread; w++) {
+            wallets[w] = UUID.randomUUID();
+            chains.add(new ArrayDeque<>());
+        }
+        UUID lastAdded = null;
+        for (int i = 0; i < operations; i++) {
+            if (i % READ_EVERY == 0 && lastAdded != null) {
+                mempool.getRank(lastAdded);
+                mempool.getTopTransactions(CryptoType.BITCOIN, 10);
+                continue;
+            }
+            int w = random.nextInt(walletsPerThread);
+            Deque<UUID> chain = chains.get(w);
+            if (chain.size() >= CHAIN_LENGTH) {
+                UUID head = chain.pollFirst();
+                write(serialized, () -> mempool.removeTransaction(head));
+            }
+            Transaction transaction = newTransaction(wallets[w], random);
+            boolean[] added = new boolean[1];
+            write(serialized, () -> added[0] = mempool.addTransaction(transaction));
+            if (added[0]) {
+                chain.addLast(transaction.getId());
+                lastAdded = transaction.getId();
+            }
+        }
+        int left = 0;
+        for (Deque<UUID> chain : chains) {
+            left += chain.size();
+        }
+        return left;
+    }
+
+    private void write(boolean serialized, Runnable action) {
+        if (serialized) {
+            synchronized (globalLock) {
+                action.run();
+            }
+        } else {
+            action.run();
+        }
+    }
+
+    private static Transaction newTransaction(UUID walletId, ThreadLocalRandom random) {
+        Transaction transaction = new Transaction(UUID.randomUUID());
+        transaction.setWalletId(walletId);
+        transaction.setCryptoType(CryptoType.BITCOIN);
+        transaction.setAmount(random.nextDouble(0.01, 1.0));
+        transaction.setFees(Math.round(random.nextDouble(0.0001, 0.01) * 1_000_000) / 1_000_000.0);
+        transaction.setFeeLevel(FeeLevel.STANDARD);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setCreationDate(LocalDateTime.now());
+        transaction.setSourceAddress("bench-" + walletId);
+        transaction.setDestinationAddress("bench-destination");
+        return transaction;
+    }
+
+    // Aucune transaction perdue ni en trop, et la vue fusionnée est dans l'ordre des rangs
+    private void verify(int expected) {
+        int count = mempool.getTransactionCount(CryptoType.BITCOIN);
+        if (count != expected) {
+            throw new IllegalStateException("Mempool incohérent : " + count + " transactions au lieu de " + expected);
+        }
+        List<Transaction> sorted = mempool.getSortedTransactions(CryptoType.BITCOIN);
+        int step = Math.max(1, sorted.size() / 1000);
+        for (int i = 0; i < sorted.size(); i += step) {
+            int rank = mempool.getRank(sorted.get(i).getId());
+            if (rank != i + 1) {
+                throw new IllegalStateException("Rang " + rank + " au lieu de " + (i + 1) + " pour " + sorted.get(i).getId());
+            }
+        }
+        mempool.clear();
+    }
+}
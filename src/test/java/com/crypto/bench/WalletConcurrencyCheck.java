@@ -0,0 +1,87 @@
+package test.java.com.crypto.bench;
+
+import main.java.com.crypto.config.DatabaseConfig;
+import main.java.com.crypto.enums.CryptoType;
+import main.java.com.crypto.models.Wallet;
+import main.java.com.crypto.repositories.DatabaseConnection;
+import main.java.com.crypto.repositories.RepositoryFactory;
+import main.java.com.crypto.services.WalletService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Aucune mise à jour de solde perdue sous crédits concurrents, sur le stockage configuré (STORAGE_BACKEND=memory
+// suffit, sans base ni réseau). Beaucoup plus de threads que de wallets : chaque wallet est crédité en même
+// temps par plusieurs threads, à travers le verrou par wallet et l'écriture conditionnée par la version.
+// La somme des soldes doit valoir exactement le nombre de crédits acceptés.
+// Usage : WalletConcurrencyCheck [threads] [crédits par thread] [wallets]
+public class WalletConcurrencyCheck {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int walletCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        WalletService walletService = WalletService.getInstance();
+
+        List<Wallet> wallets = new ArrayList<>(walletCount);
+        for (int w = 0; w < walletCount; w++) {
+            Wallet wallet = walletService.createWallet(CryptoType.BITCOIN);
+            if (wallet == null) {
+                System.out.println("Wallet de test non enregistré, stockage indisponible");
+                return;
+            }
+            wallets.add(wallet);
+        }
+        try {
+            System.out.printf("Stockage %s : %d threads x %d crédits sur %d wallets (%d bandes de verrous)%n",
+                    DatabaseConfig.STORAGE_BACKEND, threads, operations, walletCount, DatabaseConfig.WALLET_LOCK_STRIPES);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int accepted = 0;
+                    for (int i = 0; i < operations; i++) {
+                        if (walletService.creditWallet(wallets.get((offset + i) % walletCount).getId(), 1.0)) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            long accepted = 0;
+            for (Future<Integer> result : results) {
+                accepted += result.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            executor.shutdown();
+
+            double total = 0;
+            for (Wallet wallet : wallets) {
+                total += walletService.getWalletById(wallet.getId()).map(Wallet::getBalance).orElse(0.0);
+            }
+            System.out.printf("%,d crédits acceptés sur %,d en %d ms, somme des soldes %.0f%n",
+                    accepted, (long) threads * operations, elapsed / 1_000_000, total);
+            // Crédits de 1.0 : la somme reste un entier exact en double
+            if (total != accepted) {
+                throw new IllegalStateException("Mises à jour perdues : somme des soldes " + total
+                        + " au lieu de " + accepted);
+            }
+            System.out.println("Aucune mise à jour perdue");
+        } finally {
+            for (Wallet wallet : wallets) {
+                walletService.deleteWallet(wallet.getId());
+            }
+            if (!RepositoryFactory.isEmbedded()) {
+                DatabaseConnection.shutdown();
+            }
+        }
+    }
+}